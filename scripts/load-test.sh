@@ -0,0 +1,34 @@
+#!/usr/bin/env bash
+# Compares throughput/latency of platform vs virtual threads on blocking endpoints with `hey`
+# (https://github.com/rakyll/hey). Start the app once per mode against the same database, e.g.
+#   VIRTUAL_THREADS_ENABLED=false ./gradlew bootRun     then: ./scripts/load-test.sh platform
+#   VIRTUAL_THREADS_ENABLED=true  ./gradlew bootRun     then: ./scripts/load-test.sh virtual
+# and compare load-test-results/platform.txt with load-test-results/virtual.txt (requests/sec, p50/p95/p99).
+# Keep DB_POOL_SIZE the same for both runs; past the pool size both modes queue on connections.
+#
+# Env: BASE_URL (default http://localhost:8080), TOKEN (Bearer JWT, required), DURATION (default 30s),
+#      CONCURRENCY (default "50 200 800"), PATHS (default list/search purchase endpoints)
+set -euo pipefail
+
+label="${1:?usage: $0 <label, e.g. platform|virtual>}"
+base_url="${BASE_URL:-http://localhost:8080}"
+token="${TOKEN:?set TOKEN to a Bearer JWT (POST /api/login)}"
+duration="${DURATION:-30s}"
+concurrency="${CONCURRENCY:-50 200 800}"
+paths="${PATHS:-/api/purchases?limit=50 /api/purchases/search?q=honda&limit=20}"
+
+command -v hey >/dev/null || { echo "hey not found (go install github.com/rakyll/hey@latest)" >&2; exit 1; }
+
+out_dir="load-test-results"
+mkdir -p "$out_dir"
+out="$out_dir/$label.txt"
+: > "$out"
+
+for path in $paths; do
+  for c in $concurrency; do
+    echo "== $label $path c=$c" | tee -a "$out"
+    hey -z "$duration" -c "$c" -H "Authorization: Bearer $token" "$base_url$path" \
+      | grep -E "Requests/sec|Average|Slowest|10%|50%|95%|99%|\[[0-9]{3}\]" | tee -a "$out"
+  done
+done
+echo "Results in $out"
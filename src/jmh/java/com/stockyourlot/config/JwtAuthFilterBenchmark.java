@@ -0,0 +1,111 @@
+package com.stockyourlot.config;
+
+import com.stockyourlot.entity.Role;
+import com.stockyourlot.entity.User;
+import com.stockyourlot.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT generation at login and verification on the request path: the old shape (new parser per call, two parses per
+ * request) against the shared parser, JwtUtil with and without the verified-token cache, and the whole
+ * JwtAuthFilter with the principal cache warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-that-is-at-least-256-bits-long-for-hmac-sha";
+
+    private SecretKey key;
+    private JwtParser sharedParser;
+    private JwtUtil jwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private User user;
+    private JwtAuthFilter filter;
+    private String token;
+    private final FilterChain noopChain = (req, res) -> {};
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        sharedParser = Jwts.parser().verifyWith(key).build();
+        jwtUtil = new JwtUtil(SECRET, 3_600_000L, 10_000L);
+        uncachedJwtUtil = new JwtUtil(SECRET, 3_600_000L, 0L);
+
+        user = new User("buyer@example.com", null);
+        user.setId(UUID.randomUUID());
+        user.setFirstName("Bench");
+        user.setLastName("Buyer");
+        user.setRoles(Set.of(new Role("BUYER")));
+        token = jwtUtil.generateToken(user);
+
+        UserRepository users = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> "findByEmail".equals(method.getName()) ? Optional.of(user) : null);
+        AuthPrincipalCache principalCache = new AuthPrincipalCache(10_000L, 60L, new SimpleMeterRegistry());
+        filter = new JwtAuthFilter(jwtUtil, users, principalCache, JwtAuthFilter.PRINCIPAL_SOURCE_DATABASE,
+                new SimpleMeterRegistry());
+    }
+
+    /** Previous behaviour: validateToken and getEmailFromToken each built a parser and verified the token. */
+    @Benchmark
+    public String newParserTwicePerRequest() {
+        Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public String sharedParserOncePerRequest() {
+        return sharedParser.parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public Optional<Claims> jwtUtilVerifiedCacheHit() {
+        return jwtUtil.parseValidClaims(token);
+    }
+
+    @Benchmark
+    public boolean jwtUtilValidateUncached() {
+        return uncachedJwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String jwtUtilGenerateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Object filterPath() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/purchases");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), noopChain);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
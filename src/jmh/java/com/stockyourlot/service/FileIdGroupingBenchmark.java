@@ -0,0 +1,69 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.entity.FileMetadata;
+import com.stockyourlot.entity.FileType;
+import com.stockyourlot.entity.Purchase;
+import com.stockyourlot.service.FileMetadataService.BillAndConditionReportFileIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grouping of file metadata into bill-of-sale / condition-report ids per purchase
+ * (FileMetadataService.getBillAndConditionReportFileIdsByPurchaseIds without the query), three files per purchase
+ * in query order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileIdGroupingBenchmark {
+
+    private static final FileType[] TYPES = {FileType.BILL_OF_SALE, FileType.CONDITION_REPORT, FileType.MISCELLANEOUS};
+
+    @Param({"200", "10000"})
+    private int purchases;
+
+    private List<FileMetadata> files;
+
+    @Setup
+    public void setUp() throws Exception {
+        // created_at is set on persist only; fixtures fill it directly
+        Field createdAt = FileMetadata.class.getDeclaredField("createdAt");
+        createdAt.setAccessible(true);
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        files = new ArrayList<>(purchases * TYPES.length);
+        for (int i = 0; i < purchases; i++) {
+            Purchase purchase = new Purchase();
+            purchase.setId(UUID.randomUUID());
+            for (int t = 0; t < TYPES.length; t++) {
+                FileMetadata file = new FileMetadata();
+                file.setId(UUID.randomUUID());
+                file.setPurchase(purchase);
+                file.setFileType(TYPES[t]);
+                createdAt.set(file, base.plusSeconds(i * 10L + t));
+                files.add(file);
+            }
+        }
+        Collections.shuffle(files, new Random(42));
+    }
+
+    @Benchmark
+    public Map<UUID, BillAndConditionReportFileIds> groupByPurchase() {
+        return FileMetadataService.groupBillAndConditionReportFileIds(files);
+    }
+}
@@ -0,0 +1,78 @@
+package com.stockyourlot.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load plus PDFTextStripper on generated bill-of-sale-like documents: the whole document at once versus the
+ * page-by-page, budget-bounded {@link PdfTextExtractor} the extraction services run before calling OpenAI.
+ * Generated so the benchmark needs no fixture files; real scans with embedded fonts are slower.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PdfTextExtractionBenchmark {
+
+    private static final int LINES_PER_PAGE = 45;
+    /** The extraction services' MAX_TEXT_CHARS. */
+    private static final int BUDGET_CHARS = 30_000;
+
+    @Param({"1", "10", "40"})
+    private int pages;
+
+    private byte[] pdf;
+
+    @Setup
+    public void setUp() throws IOException {
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        try (PDDocument doc = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                doc.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 740);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText("Line " + (p * LINES_PER_PAGE + line) + "  VIN 1HGCM82633A004352  2021 Honda Accord EX"
+                                + "  Odometer 41,250  Sale price $18,500.00  Buyer Bench Motors LLC");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            doc.save(out);
+            pdf = out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public String extractText() throws IOException {
+        try (SpooledPdf spooled = SpooledPdf.of(pdf); PDDocument doc = spooled.load()) {
+            return new PDFTextStripper().getText(doc);
+        }
+    }
+
+    @Benchmark
+    public String extractTextBounded() {
+        return PdfTextExtractor.extractText(SpooledPdf.of(pdf), BUDGET_CHARS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.stockyourlot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockyourlot.dto.PurchaseCommissionItemDto;
+import com.stockyourlot.dto.PurchaseResponse;
+import com.stockyourlot.dto.PurchaseRow;
+import com.stockyourlot.entity.PurchaseStatus;
+import com.stockyourlot.service.FileMetadataService.BillAndConditionReportFileIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purchase list response path after the queries: joining projected rows with file ids, commission lines and
+ * service fees (PurchaseService.toResponses), then Jackson serialization of the resulting list as the API writes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PurchaseResponseBenchmark {
+
+    @Param({"200", "10000"})
+    private int purchases;
+
+    private List<PurchaseRow> rows;
+    private Map<UUID, BillAndConditionReportFileIds> fileIds;
+    private Map<UUID, List<PurchaseCommissionItemDto>> commissions;
+    private Map<UUID, BigDecimal> serviceFees;
+    private List<PurchaseResponse> responses;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        UUID buyerId = UUID.randomUUID();
+        UUID dealershipId = UUID.randomUUID();
+        UUID ruleId = UUID.randomUUID();
+        rows = new ArrayList<>(purchases);
+        fileIds = new HashMap<>();
+        commissions = new HashMap<>();
+        serviceFees = new HashMap<>();
+        for (int i = 0; i < purchases; i++) {
+            UUID id = UUID.randomUUID();
+            BigDecimal price = BigDecimal.valueOf(15_000 + i % 20_000, 0).setScale(2);
+            rows.add(new PurchaseRow(id, buyerId, "Bench", "Buyer", "buyer@example.com", dealershipId, "Bench Motors",
+                    LocalDate.of(2024, 1, 1).plusDays(i % 365), PurchaseStatus.CONFIRMED, "Manheim",
+                    String.format("1HGCM82633A%06d", i), 40_000 + i, price, "2021", "Honda", "Accord", "EX",
+                    BigDecimal.valueOf(350), Instant.now()));
+            if (i % 2 == 0) {
+                fileIds.put(id, new BillAndConditionReportFileIds(UUID.randomUUID(), UUID.randomUUID()));
+            }
+            commissions.put(id, List.of(new PurchaseCommissionItemDto(buyerId, "Bench Buyer", ruleId, "Standard",
+                    BigDecimal.valueOf(250))));
+            serviceFees.put(id, BigDecimal.valueOf(125));
+        }
+        responses = PurchaseService.toResponses(rows, fileIds, commissions, serviceFees);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<PurchaseResponse> mapRowsToResponses() {
+        return PurchaseService.toResponses(rows, fileIds, commissions, serviceFees);
+    }
+
+    @Benchmark
+    public byte[] serializeResponses() throws Exception {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+}
@@ -0,0 +1,70 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.entity.CommissionType;
+import com.stockyourlot.entity.PremiumType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-purchase BigDecimal math of commission and premium amounts (flat and percent rules) over a spread of prices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RuleAmountBenchmark {
+
+    private static final int PRICES = 1024;
+
+    private final BigDecimal[] prices = new BigDecimal[PRICES];
+    private final BigDecimal flatAmount = new BigDecimal("250.00");
+    private final BigDecimal percent = new BigDecimal("2.5");
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < PRICES; i++) {
+            prices[i] = BigDecimal.valueOf(500_000 + i * 3_711L, 2);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRICES)
+    public void commissionPercent(Blackhole bh) {
+        for (BigDecimal price : prices) {
+            bh.consume(CommissionService.computeCommissionAmount(CommissionType.PERCENT, percent, price));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRICES)
+    public void commissionFlat(Blackhole bh) {
+        for (BigDecimal price : prices) {
+            bh.consume(CommissionService.computeCommissionAmount(CommissionType.FLAT, flatAmount, price));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRICES)
+    public void premiumPercent(Blackhole bh) {
+        for (BigDecimal price : prices) {
+            bh.consume(PremiumService.computePremiumAmount(PremiumType.PERCENT, percent, price));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRICES)
+    public void premiumFlat(Blackhole bh) {
+        for (BigDecimal price : prices) {
+            bh.consume(PremiumService.computePremiumAmount(PremiumType.FLAT, flatAmount, price));
+        }
+    }
+}
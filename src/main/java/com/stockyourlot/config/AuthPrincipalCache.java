@@ -0,0 +1,70 @@
+package com.stockyourlot.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stockyourlot.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-based cache of authenticated users for JwtAuthFilter, keyed by email plus the token's issued-at,
+ * so a fresh login always reloads the user. Services that change a user's email, roles or status must call
+ * {@link #evict(String)}. Hit/miss/eviction counts are published as cache.* metrics with cache=authPrincipal.
+ */
+@Component
+public class AuthPrincipalCache {
+
+    private record Key(String email, long issuedAtMillis) {}
+
+    private final Cache<Key, User> cache;
+
+    public AuthPrincipalCache(@Value("${app.auth.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${app.auth.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "authPrincipal");
+    }
+
+    /**
+     * Returns the cached user for this email/issued-at, loading it with the loader on a miss.
+     * Empty (and nothing cached) when the loader finds no user.
+     */
+    public Optional<User> get(String email, Date issuedAt, Function<String, Optional<User>> loader) {
+        Key key = new Key(email, issuedAt != null ? issuedAt.getTime() : 0L);
+        return Optional.ofNullable(cache.get(key, k -> loader.apply(k.email()).orElse(null)));
+    }
+
+    /**
+     * Drops every cached entry for the email. When called inside a transaction the entries are dropped again
+     * after commit, so a request that reloads the user mid-transaction cannot keep the stale copy.
+     */
+    public void evict(String email) {
+        if (email == null) return;
+        evictNow(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(email);
+                }
+            });
+        }
+    }
+
+    private void evictNow(String email) {
+        cache.asMap().keySet().removeIf(k -> k.email().equalsIgnoreCase(email));
+    }
+}
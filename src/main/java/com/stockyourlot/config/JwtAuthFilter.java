@@ -1,11 +1,16 @@
 package com.stockyourlot.config;
 
+import com.stockyourlot.entity.Role;
 import com.stockyourlot.entity.User;
 import com.stockyourlot.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,21 +20,58 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Authenticates Bearer requests. Token verification plus principal lookup (not the rest of the chain) is timed as
+ * auth.jwt, tagged outcome=authenticated|invalid_token|unknown_user.
+ */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
 
+    /** Load the principal from the DB through {@link AuthPrincipalCache} (default). */
+    static final String PRINCIPAL_SOURCE_DATABASE = "database";
+    /**
+     * Build the principal from the token's uid/name/roles claims with no DB access. Role or name changes then only
+     * take effect on the next login; tokens without a uid claim fall back to the database source.
+     */
+    static final String PRINCIPAL_SOURCE_TOKEN = "token";
+
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private final AuthPrincipalCache principalCache;
+    private final boolean principalFromToken;
+    private final Map<String, Timer> timers;
 
-    public JwtAuthFilter(JwtUtil jwtUtil, UserRepository userRepository) {
+    public JwtAuthFilter(JwtUtil jwtUtil, UserRepository userRepository, AuthPrincipalCache principalCache,
+                         @Value("${app.auth.principal-source:" + PRINCIPAL_SOURCE_DATABASE + "}") String principalSource,
+                         MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.principalFromToken = PRINCIPAL_SOURCE_TOKEN.equalsIgnoreCase(principalSource != null ? principalSource.trim() : "");
+        this.timers = Map.of(
+                "authenticated", authTimer(meterRegistry, "authenticated"),
+                "invalid_token", authTimer(meterRegistry, "invalid_token"),
+                "unknown_user", authTimer(meterRegistry, "unknown_user"));
+    }
+
+    private static Timer authTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.jwt")
+                .description("Bearer token verification and principal lookup")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     @Override
@@ -43,23 +85,54 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
         String token = authHeader.substring(7);
-        if (!jwtUtil.validateToken(token)) {
+        long start = System.nanoTime();
+        String outcome = authenticate(request, token);
+        timers.get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        filterChain.doFilter(request, response);
+    }
+
+    /** Sets the authentication when the token and user are valid; returns the auth.jwt outcome tag. */
+    private String authenticate(HttpServletRequest request, String token) {
+        Optional<Claims> verified = jwtUtil.parseValidClaims(token);
+        if (verified.isEmpty()) {
             log.info("JWT validation failed for {} {} (check logs above for expired/signature invalid) -> pre-authenticated entry point will reject", request.getMethod(), request.getRequestURI());
-            filterChain.doFilter(request, response);
-            return;
+            return "invalid_token";
+        }
+        Claims claims = verified.get();
+        String email = claims.getSubject();
+        Optional<User> userOpt = principalFromToken ? userFromClaims(claims) : Optional.empty();
+        if (userOpt.isEmpty()) {
+            userOpt = principalCache.get(email, claims.getIssuedAt(), userRepository::findByEmail);
         }
-        String email = jwtUtil.getEmailFromToken(token);
-        var userOpt = userRepository.findByEmail(email);
         if (userOpt.isEmpty()) {
             log.warn("JWT valid but user not found: email={} for {} {} -> pre-authenticated entry point will reject", email, request.getMethod(), request.getRequestURI());
-            filterChain.doFilter(request, response);
-            return;
+            return "unknown_user";
         }
         User user = userOpt.get();
         UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
                 user, null, user.getAuthorities());
         auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         SecurityContextHolder.getContext().setAuthentication(auth);
-        filterChain.doFilter(request, response);
+        return "authenticated";
+    }
+
+    /**
+     * Detached user carrying id, email, names and global roles from the token; empty if the token has no uid claim.
+     */
+    private static Optional<User> userFromClaims(Claims claims) {
+        String uid = claims.get(JwtUtil.CLAIM_USER_ID, String.class);
+        if (!StringUtils.hasText(uid)) {
+            return Optional.empty();
+        }
+        User user = new User(claims.getSubject(), null);
+        user.setId(UUID.fromString(uid));
+        user.setFirstName(claims.get(JwtUtil.CLAIM_FIRST_NAME, String.class));
+        user.setLastName(claims.get(JwtUtil.CLAIM_LAST_NAME, String.class));
+        Set<Role> roles = new HashSet<>();
+        if (claims.get("roles") instanceof List<?> names) {
+            names.forEach(name -> roles.add(new Role(name.toString())));
+        }
+        user.setRoles(roles);
+        return Optional.of(user);
     }
 }
@@ -1,7 +1,13 @@
 package com.stockyourlot.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.stockyourlot.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
@@ -15,27 +21,51 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
     private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
 
+    /** Claim names beyond subject/email/roles; used to rebuild the principal without a DB lookup. */
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_FIRST_NAME = "given_name";
+    public static final String CLAIM_LAST_NAME = "family_name";
+
+    /** Verified token kept under its signature segment; the full token is compared on lookup. */
+    private record VerifiedToken(String token, Claims claims) {}
+
     private final SecretKey key;
     private final long expirationMs;
+    /** Immutable and thread-safe; built once instead of per parse. */
+    private final JwtParser parser;
+    /** Recently verified tokens; each entry expires with its token, so an expired token is never served. */
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     public JwtUtil(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration-ms}") long expirationMs) {
+            @Value("${jwt.expiration-ms}") long expirationMs,
+            @Value("${jwt.verified-cache.max-size:10000}") long verifiedCacheMaxSize) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
-    public String generateToken(String email, List<String> roles) {
+    public String generateToken(User user) {
+        String email = user.getEmail();
         return Jwts.builder()
                 .subject(email)
                 .claim("email", email)
-                .claim("roles", roles != null ? roles : List.of())
+                .claim("roles", user.getRoleNames())
+                .claim(CLAIM_USER_ID, user.getId() != null ? user.getId().toString() : null)
+                .claim(CLAIM_FIRST_NAME, user.getFirstName())
+                .claim(CLAIM_LAST_NAME, user.getLastName())
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expirationMs))
                 .signWith(key)
@@ -46,7 +76,6 @@ public class JwtUtil {
         return parseClaims(token).getSubject();
     }
 
-    @SuppressWarnings("unchecked")
     public List<String> getRolesFromToken(String token) {
         Object roles = parseClaims(token).get("roles");
         if (roles instanceof List<?> list) {
@@ -56,26 +85,63 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token) {
+        return parseValidClaims(token).isPresent();
+    }
+
+    /**
+     * Verifies the token once and returns its claims, or empty (with the reason logged) if it is expired,
+     * badly signed or malformed. Use this instead of validateToken followed by a getter.
+     */
+    public Optional<Claims> parseValidClaims(String token) {
         try {
-            parseClaims(token);
-            return true;
+            return Optional.of(parseClaims(token));
         } catch (ExpiredJwtException e) {
             log.warn("JWT expired: {}", e.getMessage());
-            return false;
+            return Optional.empty();
         } catch (SignatureException e) {
             log.warn("JWT signature invalid: {}", e.getMessage());
-            return false;
-        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        } catch (JwtException | IllegalArgumentException e) {
             log.warn("JWT invalid: {}", e.getMessage());
-            return false;
+            return Optional.empty();
         }
     }
 
     private Claims parseClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        String signature = signatureOf(token);
+        VerifiedToken cached = signature != null ? verifiedTokens.getIfPresent(signature) : null;
+        if (cached != null && cached.token().equals(token)) {
+            return cached.claims();
+        }
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (signature != null && claims.getExpiration() != null) {
+            verifiedTokens.put(signature, new VerifiedToken(token, claims));
+        }
+        return claims;
+    }
+
+    private static String signatureOf(String token) {
+        if (token == null) return null;
+        int dot = token.lastIndexOf('.');
+        return dot >= 0 && dot < token.length() - 1 ? token.substring(dot + 1) : null;
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMs = value.claims().getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
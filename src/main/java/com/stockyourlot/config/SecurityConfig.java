@@ -3,10 +3,17 @@ package com.stockyourlot.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.util.StringUtils;
@@ -21,6 +28,8 @@ import java.util.List;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final String METRICS_ROLE = "METRICS";
+
     private final ApiKeyAuthFilter apiKeyAuthFilter;
     private final JwtAuthFilter jwtAuthFilter;
 
@@ -32,6 +41,37 @@ public class SecurityConfig {
         this.jwtAuthFilter = jwtAuthFilter;
     }
 
+    /**
+     * /actuator/prometheus only: HTTP Basic as the configured scrape user (role METRICS), with its own authentication
+     * manager and none of the API key/JWT filters, so neither X-API-Key nor a user token can read metrics.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain metricsSecurityFilterChain(
+            HttpSecurity http,
+            @Value("${app.metrics.scrape.username:prometheus}") String scrapeUsername,
+            @Value("${app.metrics.scrape.password:}") String scrapePassword) throws Exception {
+        InMemoryUserDetailsManager scrapers = new InMemoryUserDetailsManager();
+        if (StringUtils.hasText(scrapePassword)) {
+            scrapers.createUser(User.withUsername(scrapeUsername)
+                    .password("{noop}" + scrapePassword)
+                    .roles(METRICS_ROLE)
+                    .build());
+        }
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(scrapers);
+        provider.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        http
+                .securityMatcher("/actuator/prometheus")
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session ->
+                        session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authenticationManager(new ProviderManager(provider))
+                .authorizeHttpRequests(auth -> auth.anyRequest().hasRole(METRICS_ROLE))
+                .httpBasic(Customizer.withDefaults());
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -47,6 +87,7 @@ public class SecurityConfig {
                         .requestMatchers("/error", "/error/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/bill-of-sale/extract").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/condition-report/extract").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/documents/extract").permitAll()
                         .requestMatchers(req -> "stock-your-lot".equals(req.getHeader("X-API-Key"))).permitAll()
                         .anyRequest().authenticated()
                 )
@@ -64,7 +105,7 @@ public class SecurityConfig {
         config.setAllowedOrigins(origins);
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", SqlStatementBudgetAdvice.HEADER));
         if (!origins.contains("*")) {
             config.setAllowCredentials(true);
         }
@@ -0,0 +1,68 @@
+package com.stockyourlot.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Runs just before a response body is written, when the handler's SQL is done but headers can still change:
+ * adds X-SQL-Statement-Count (app.sql-stats.header-enabled, off in prod) and, in test mode
+ * (app.sql-stats.fail-over-budget), fails the request with an IllegalStateException when it exceeded
+ * app.sql-stats.max-statements-per-request, so integration tests catch N+1 regressions. Responses without a body
+ * never reach this advice; SqlStatementCountFilter applies the same checks to those after the handler returns.
+ */
+@ControllerAdvice
+public class SqlStatementBudgetAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HEADER = "X-SQL-Statement-Count";
+    /** Request attribute set once the budget failure was raised, so SqlStatementCountFilter does not raise it again. */
+    static final String BUDGET_FAILED_ATTRIBUTE = SqlStatementBudgetAdvice.class.getName() + ".failed";
+
+    private final SqlStatementCounter counter;
+    private final boolean headerEnabled;
+    private final boolean failOverBudget;
+    private final int maxStatementsPerRequest;
+
+    public SqlStatementBudgetAdvice(SqlStatementCounter counter,
+                                    @Value("${app.sql-stats.header-enabled:false}") boolean headerEnabled,
+                                    @Value("${app.sql-stats.fail-over-budget:false}") boolean failOverBudget,
+                                    @Value("${app.sql-stats.max-statements-per-request:0}") int maxStatementsPerRequest) {
+        this.counter = counter;
+        this.headerEnabled = headerEnabled;
+        this.failOverBudget = failOverBudget;
+        this.maxStatementsPerRequest = maxStatementsPerRequest;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return headerEnabled || (failOverBudget && maxStatementsPerRequest > 0);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType selectedContentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        int statements = counter.current();
+        if (statements < 0) return body;
+        if (failOverBudget && maxStatementsPerRequest > 0 && statements > maxStatementsPerRequest
+                && request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(BUDGET_FAILED_ATTRIBUTE) == null) {
+            // Fail once; the error response written for this exception goes through here again.
+            servletRequest.getServletRequest().setAttribute(BUDGET_FAILED_ATTRIBUTE, Boolean.TRUE);
+            throw new IllegalStateException(request.getMethod() + " " + request.getURI().getPath() + " ran " + statements
+                    + " SQL statements, over the budget of " + maxStatementsPerRequest);
+        }
+        if (headerEnabled) {
+            response.getHeaders().set(HEADER, Integer.toString(statements));
+        }
+        return body;
+    }
+}
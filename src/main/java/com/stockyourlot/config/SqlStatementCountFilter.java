@@ -0,0 +1,87 @@
+package com.stockyourlot.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts SQL statements per request, including authentication lookups (runs ahead of the security chain), and
+ * records them as the http.server.requests.sql.statements summary tagged by method and URI pattern. Requests over
+ * app.sql-stats.max-statements-per-request are logged. The response header and test-mode failure are applied
+ * before the body is written by SqlStatementBudgetAdvice; for responses without a body (204, ResponseEntity&lt;Void&gt;,
+ * redirects) this filter applies them after the chain returns instead. A response already committed by then (a
+ * streamed download) only gets the log line, since its status can no longer change.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementCountFilter.class);
+
+    private final SqlStatementCounter counter;
+    private final MeterRegistry meterRegistry;
+    private final boolean headerEnabled;
+    private final boolean failOverBudget;
+    private final int maxStatementsPerRequest;
+
+    public SqlStatementCountFilter(SqlStatementCounter counter, MeterRegistry meterRegistry,
+                                   @Value("${app.sql-stats.header-enabled:false}") boolean headerEnabled,
+                                   @Value("${app.sql-stats.fail-over-budget:false}") boolean failOverBudget,
+                                   @Value("${app.sql-stats.max-statements-per-request:0}") int maxStatementsPerRequest) {
+        this.counter = counter;
+        this.meterRegistry = meterRegistry;
+        this.headerEnabled = headerEnabled;
+        this.failOverBudget = failOverBudget;
+        this.maxStatementsPerRequest = maxStatementsPerRequest;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        counter.start();
+        int statements;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            statements = counter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("http.server.requests.sql.statements")
+                    .description("SQL statements prepared while handling one request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+            if (maxStatementsPerRequest > 0 && statements > maxStatementsPerRequest) {
+                log.warn("{} {} ran {} SQL statements (budget {})", request.getMethod(), uri, statements, maxStatementsPerRequest);
+            }
+        }
+        if (response.isCommitted()) return;
+        // Only reached when SqlStatementBudgetAdvice did not run (no body) or ran under budget
+        if (failOverBudget && maxStatementsPerRequest > 0 && statements > maxStatementsPerRequest
+                && request.getAttribute(SqlStatementBudgetAdvice.BUDGET_FAILED_ATTRIBUTE) == null) {
+            request.setAttribute(SqlStatementBudgetAdvice.BUDGET_FAILED_ATTRIBUTE, Boolean.TRUE);
+            throw new IllegalStateException(request.getMethod() + " " + request.getRequestURI() + " ran " + statements
+                    + " SQL statements, over the budget of " + maxStatementsPerRequest);
+        }
+        if (headerEnabled && !response.containsHeader(SqlStatementBudgetAdvice.HEADER)) {
+            response.setHeader(SqlStatementBudgetAdvice.HEADER, Integer.toString(statements));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.stockyourlot.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()}
+ * (one per request, see SqlStatementCountFilter). Registered as the session factory's StatementInspector; batched
+ * inserts prepare once per batch and count once. Work on other threads (async jobs, streamed response bodies) is
+ * not attributed to the request.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /** Statements so far on this thread, or -1 when not counting. */
+    public int current() {
+        int[] count = COUNT.get();
+        return count != null ? count[0] : -1;
+    }
+
+    /** Stops counting and returns the total (-1 when not counting). */
+    public int stop() {
+        int total = current();
+        COUNT.remove();
+        return total;
+    }
+}
@@ -0,0 +1,38 @@
+package com.stockyourlot.controller;
+
+import com.stockyourlot.dto.AnalyticsBucket;
+import com.stockyourlot.dto.AnalyticsGroupBy;
+import com.stockyourlot.dto.PurchaseAnalyticsResponse;
+import com.stockyourlot.service.PurchaseAnalyticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final PurchaseAnalyticsService purchaseAnalyticsService;
+
+    public AnalyticsController(PurchaseAnalyticsService purchaseAnalyticsService) {
+        this.purchaseAnalyticsService = purchaseAnalyticsService;
+    }
+
+    /**
+     * Purchase count, sum and average of purchase price, transport quote, commissions and premiums per time bucket
+     * (DAY, WEEK, MONTH) and group (DEALERSHIP, BUYER, AUCTION_PLATFORM, MAKE) over an inclusive purchase-date range.
+     * endDate defaults to today, startDate to one year before it. Requires authentication.
+     */
+    @GetMapping("/purchases")
+    public ResponseEntity<PurchaseAnalyticsResponse> getPurchaseAnalytics(
+            @RequestParam(defaultValue = "MONTH") AnalyticsBucket bucket,
+            @RequestParam(defaultValue = "DEALERSHIP") AnalyticsGroupBy groupBy,
+            @RequestParam(required = false) LocalDate startDate,
+            @RequestParam(required = false) LocalDate endDate) {
+        return ResponseEntity.ok(purchaseAnalyticsService.getPurchaseAnalytics(bucket, groupBy, startDate, endDate));
+    }
+}
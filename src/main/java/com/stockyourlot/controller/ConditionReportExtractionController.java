@@ -1,19 +1,30 @@
 package com.stockyourlot.controller;
 
 import com.stockyourlot.dto.ConditionReportExtractionResponse;
+import com.stockyourlot.dto.ExtractionJobResponse;
+import com.stockyourlot.entity.FileType;
+import com.stockyourlot.entity.User;
 import com.stockyourlot.service.ConditionReportExtractionService;
+import com.stockyourlot.service.ExtractionJobService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
+
 @RestController
 @RequestMapping("/api/condition-report")
 public class ConditionReportExtractionController {
 
     private final ConditionReportExtractionService extractionService;
+    private final ExtractionJobService extractionJobService;
 
-    public ConditionReportExtractionController(ConditionReportExtractionService extractionService) {
+    public ConditionReportExtractionController(ConditionReportExtractionService extractionService,
+            ExtractionJobService extractionJobService) {
         this.extractionService = extractionService;
+        this.extractionJobService = extractionJobService;
     }
 
     /**
@@ -27,4 +38,23 @@ public class ConditionReportExtractionController {
         ConditionReportExtractionResponse response = extractionService.extractFromPdf(file, uploadToken);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Queue extraction of a condition report PDF and return 202 with the job; poll GET /api/extraction-jobs/{id}
+     * or subscribe to /api/extraction-jobs/{id}/events for the result. Requires a logged-in user, who is the only
+     * one able to read the job. 503 if the extraction queue is full.
+     */
+    @PostMapping("/extract-jobs")
+    public ResponseEntity<ExtractionJobResponse> submitExtractJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "uploadToken", required = false) java.util.UUID uploadToken,
+            @AuthenticationPrincipal Object principal) {
+        if (!(principal instanceof User user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ExtractionJobResponse job = extractionJobService.submit(FileType.CONDITION_REPORT, file, uploadToken, user.getId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/extraction-jobs/" + job.id()))
+                .body(job);
+    }
 }
@@ -5,7 +5,7 @@ import com.stockyourlot.dto.CreateDealershipRequest;
 import com.stockyourlot.dto.DealershipPremiumSummaryDto;
 import com.stockyourlot.dto.DealershipResponse;
 import com.stockyourlot.dto.DealerPremiumAssignmentDto;
-import com.stockyourlot.dto.PurchaseResponse;
+import com.stockyourlot.dto.PurchasePageResponse;
 import com.stockyourlot.dto.UpdateDealerPremiumRequest;
 import com.stockyourlot.dto.UpdateDealershipRequest;
 import com.stockyourlot.dto.UserAtDealershipDto;
@@ -53,9 +53,15 @@ public class DealershipController {
         return ResponseEntity.ok(dealershipService.update(id, request));
     }
 
+    /**
+     * Purchases for a dealership, newest first, one page at a time (limit defaults to 50, max 200).
+     */
     @GetMapping("/{id}/purchases")
-    public ResponseEntity<List<PurchaseResponse>> getDealershipPurchases(@PathVariable UUID id) {
-        return ResponseEntity.ok(purchaseService.getByDealershipId(id));
+    public ResponseEntity<PurchasePageResponse> getDealershipPurchases(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(purchaseService.getByDealershipId(id, cursor, limit));
     }
 
     @GetMapping("/{id}/premium-summary")
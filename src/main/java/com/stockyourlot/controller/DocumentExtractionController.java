@@ -0,0 +1,29 @@
+package com.stockyourlot.controller;
+
+import com.stockyourlot.dto.CombinedExtractionResponse;
+import com.stockyourlot.service.CombinedExtractionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/documents")
+public class DocumentExtractionController {
+
+    private final CombinedExtractionService combinedExtractionService;
+
+    public DocumentExtractionController(CombinedExtractionService combinedExtractionService) {
+        this.combinedExtractionService = combinedExtractionService;
+    }
+
+    /**
+     * Extract bill-of-sale and condition-report fields from one PDF containing both, with a single OpenAI call.
+     * If uploadToken is provided, each document's pages are saved to GCS and file_metadata as PENDING.
+     */
+    @PostMapping("/extract")
+    public ResponseEntity<CombinedExtractionResponse> extract(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "uploadToken", required = false) java.util.UUID uploadToken) {
+        return ResponseEntity.ok(combinedExtractionService.extractFromPdf(file, uploadToken));
+    }
+}
@@ -0,0 +1,49 @@
+package com.stockyourlot.controller;
+
+import com.stockyourlot.dto.ExtractionJobResponse;
+import com.stockyourlot.entity.User;
+import com.stockyourlot.service.ExtractionJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/extraction-jobs")
+public class ExtractionJobController {
+
+    private final ExtractionJobService extractionJobService;
+
+    public ExtractionJobController(ExtractionJobService extractionJobService) {
+        this.extractionJobService = extractionJobService;
+    }
+
+    /**
+     * Current status of an extraction job; result holds the extraction response once SUCCEEDED.
+     * 404 unless the logged-in user submitted the job.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ExtractionJobResponse> getJob(@PathVariable UUID id, @AuthenticationPrincipal Object principal) {
+        if (!(principal instanceof User user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(extractionJobService.getJob(id, user.getId()));
+    }
+
+    /**
+     * Server-sent events: a single "job" event when the job finishes, then the stream closes.
+     * 404 unless the logged-in user submitted the job.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable UUID id, @AuthenticationPrincipal Object principal) {
+        if (!(principal instanceof User user)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
+        }
+        return extractionJobService.subscribe(id, user.getId());
+    }
+}
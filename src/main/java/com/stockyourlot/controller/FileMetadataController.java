@@ -2,18 +2,21 @@ package com.stockyourlot.controller;
 
 import com.stockyourlot.dto.FileMetadataResponse;
 import com.stockyourlot.service.FileMetadataService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -65,18 +68,47 @@ public class FileMetadataController {
     }
 
     /**
-     * Get full file content by file metadata ID. Uses metadata to resolve the object in GCS and returns the file
-     * with appropriate Content-Type and Content-Disposition. Requires authentication.
+     * Stream file content by file metadata ID from GCS with Content-Type and Content-Disposition. Supports a single
+     * HTTP Range (206, or 416 if unsatisfiable) for progressive PDF viewing, and ETag/Last-Modified validators:
+     * a matching If-None-Match / If-Modified-Since returns 304 without touching storage. Requires authentication.
      */
     @GetMapping("/files/{fileId}")
-    public ResponseEntity<byte[]> getFile(@PathVariable UUID fileId) throws UnsupportedEncodingException {
-        FileMetadataService.FileDownload download = fileMetadataService.getFileContent(fileId);
+    public ResponseEntity<StreamingResponseBody> getFile(
+            @PathVariable UUID fileId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            WebRequest webRequest) {
+        FileMetadataService.FileDownload download = fileMetadataService.getFileForDownload(fileId);
+        if (webRequest.checkNotModified(download.etag(), download.lastModified().toEpochMilli())) {
+            return null; // 304 with validators already written
+        }
+        long size = fileMetadataService.getStoredSize(download);
+
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(download.contentType()));
         String encodedFileName = URLEncoder.encode(download.fileName(), StandardCharsets.UTF_8).replace("+", "%20");
         headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + download.fileName() + "\"; filename*=UTF-8''" + encodedFileName);
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(download.content());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+
+        boolean rangeApplies = ifRange == null || ifRange.equals(download.etag());
+        Optional<FileMetadataService.ByteRange> byteRange = rangeApplies
+                ? FileMetadataService.ByteRange.parse(range, size)
+                : Optional.empty();
+        if (byteRange.isPresent() && !byteRange.get().isSatisfiable(size)) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+        long start = byteRange.map(FileMetadataService.ByteRange::start).orElse(0L);
+        long end = byteRange.map(FileMetadataService.ByteRange::end).orElse(size - 1);
+        headers.setContentLength(end - start + 1);
+        StreamingResponseBody body = size == 0
+                ? out -> {}
+                : out -> fileMetadataService.streamFile(download, start, end, out);
+        if (byteRange.isPresent()) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(body);
+        }
+        return ResponseEntity.ok().headers(headers).body(body);
     }
 }
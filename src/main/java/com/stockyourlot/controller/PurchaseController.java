@@ -1,15 +1,24 @@
 package com.stockyourlot.controller;
 
+import com.stockyourlot.dto.BulkCreatePurchasesRequest;
+import com.stockyourlot.dto.BulkCreatePurchasesResponse;
 import com.stockyourlot.dto.CreatePurchaseRequest;
+import com.stockyourlot.dto.PurchaseExportFormat;
+import com.stockyourlot.dto.PurchasePageResponse;
 import com.stockyourlot.dto.PurchaseResponse;
 import com.stockyourlot.dto.UpdatePurchaseRequest;
+import com.stockyourlot.dto.VinMatchMode;
+import com.stockyourlot.entity.PurchaseStatus;
 import com.stockyourlot.entity.User;
 import com.stockyourlot.service.PurchaseService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -26,14 +35,69 @@ public class PurchaseController {
     }
 
     /**
-     * Get all purchases (all buyers). Optional date range: startDate and/or endDate (inclusive).
-     * If both omitted, returns all purchases. Requires authentication.
+     * Get all purchases (all buyers), newest first, one page at a time. Optional date range: startDate and/or
+     * endDate (inclusive). limit defaults to 50 (max 200); pass nextCursor from the previous page as cursor.
+     * Requires authentication.
      */
     @GetMapping
-    public ResponseEntity<List<PurchaseResponse>> getAll(
+    public ResponseEntity<PurchasePageResponse> getAll(
             @RequestParam(required = false) LocalDate startDate,
-            @RequestParam(required = false) LocalDate endDate) {
-        return ResponseEntity.ok(purchaseService.getAll(startDate, endDate));
+            @RequestParam(required = false) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(purchaseService.getAll(startDate, endDate, cursor, limit));
+    }
+
+    /**
+     * Export all purchases in an optional purchase-date range (inclusive) as a streamed download.
+     * format is NDJSON (default, one PurchaseResponse per line) or CSV. Rows are written as they are read,
+     * so the response size is not limited by server memory. Requires authentication.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) LocalDate startDate,
+            @RequestParam(required = false) LocalDate endDate,
+            @RequestParam(defaultValue = "NDJSON") PurchaseExportFormat format) {
+        String fileName = "purchases"
+                + (startDate != null ? "-from-" + startDate : "")
+                + (endDate != null ? "-to-" + endDate : "")
+                + "." + format.getFileExtension();
+        StreamingResponseBody body = out -> purchaseService.export(startDate, endDate, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    /**
+     * Full-text vehicle search, best match first: q is matched against year, make, model, trim, auction platform
+     * and VIN (every word must match as a prefix, e.g. "2019 Silverado LT Manheim"). Optional filters: dealershipId,
+     * buyerId, startDate/endDate (inclusive purchase date) and status. limit defaults to 50 (max 200); pass
+     * nextCursor from the previous page as cursor.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<PurchasePageResponse> search(
+            @RequestParam String q,
+            @RequestParam(required = false) UUID dealershipId,
+            @RequestParam(required = false) UUID buyerId,
+            @RequestParam(required = false) LocalDate startDate,
+            @RequestParam(required = false) LocalDate endDate,
+            @RequestParam(required = false) PurchaseStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(purchaseService.search(q, dealershipId, buyerId, startDate, endDate, status, cursor, limit));
+    }
+
+    /**
+     * Find purchases by VIN, newest first. match is EXACT (default), PREFIX or SUFFIX (e.g. the last 6 characters);
+     * the term is case-insensitive, 3 to 17 letters or digits. limit defaults to 50 (max 200).
+     */
+    @GetMapping("/vin-search")
+    public ResponseEntity<List<PurchaseResponse>> searchByVin(
+            @RequestParam String vin,
+            @RequestParam(defaultValue = "EXACT") VinMatchMode match,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(purchaseService.searchByVin(vin, match, limit));
     }
 
     /**
@@ -45,26 +109,33 @@ public class PurchaseController {
     }
 
     /**
-     * Get purchases for the currently logged-in user.
+     * Get purchases for the currently logged-in user (paged, same cursor/limit as the full list).
      */
     @GetMapping("/me")
-    public ResponseEntity<List<PurchaseResponse>> getMyPurchases(@AuthenticationPrincipal Object principal) {
+    public ResponseEntity<PurchasePageResponse> getMyPurchases(
+            @AuthenticationPrincipal Object principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         if (!(principal instanceof User user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(purchaseService.getByBuyerId(user.getId()));
+        return ResponseEntity.ok(purchaseService.getByBuyerId(user.getId(), cursor, limit));
     }
 
     /**
-     * Get purchases for a specific buyer by ID.
+     * Get purchases for a specific buyer by ID (paged, same cursor/limit as the full list).
      */
     @GetMapping("/buyer/{buyerId}")
-    public ResponseEntity<List<PurchaseResponse>> getByBuyerId(@PathVariable UUID buyerId) {
-        return ResponseEntity.ok(purchaseService.getByBuyerId(buyerId));
+    public ResponseEntity<PurchasePageResponse> getByBuyerId(
+            @PathVariable UUID buyerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(purchaseService.getByBuyerId(buyerId, cursor, limit));
     }
 
     /**
-     * Create a purchase. buyer_id is set to the currently logged-in user.
+     * Create a purchase. buyer_id is set to the currently logged-in user. A repeated VIN is recorded and reported as
+     * duplicateOfPurchaseId, or rejected with 409 when the request sets rejectDuplicateVin.
      */
     @PostMapping
     public ResponseEntity<PurchaseResponse> createPurchase(
@@ -77,6 +148,20 @@ public class PurchaseController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Create up to 500 purchases in one call; buyer_id is the logged-in user. Invalid rows are reported per index
+     * and skipped while the valid rows are created.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreatePurchasesResponse> createPurchases(
+            @Valid @RequestBody BulkCreatePurchasesRequest request,
+            @AuthenticationPrincipal Object principal) {
+        if (!(principal instanceof User user)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(purchaseService.createBulk(request.purchases(), user));
+    }
+
     /**
      * Update a purchase by ID. Only provided fields in the body are updated.
      */
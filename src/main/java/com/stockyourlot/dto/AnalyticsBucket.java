@@ -0,0 +1,10 @@
+package com.stockyourlot.dto;
+
+/**
+ * Time bucket for purchase analytics; buckets start on the first day (weeks start on Monday).
+ */
+public enum AnalyticsBucket {
+    DAY,
+    WEEK,
+    MONTH
+}
@@ -0,0 +1,11 @@
+package com.stockyourlot.dto;
+
+/**
+ * Dimension purchase analytics are grouped by within each time bucket.
+ */
+public enum AnalyticsGroupBy {
+    DEALERSHIP,
+    BUYER,
+    AUCTION_PLATFORM,
+    MAKE
+}
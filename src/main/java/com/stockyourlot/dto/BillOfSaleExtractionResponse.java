@@ -6,6 +6,7 @@ import java.math.BigDecimal;
 
 /**
  * Extracted fields from a bill-of-sale PDF (via LLM). Returned to UI to prefill the purchase form.
+ * source is which path produced them: "rules" (local pattern extraction), "openai" or "cache".
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record BillOfSaleExtractionResponse(
@@ -20,5 +21,6 @@ public record BillOfSaleExtractionResponse(
         Integer miles,
         String saleDate,
         Boolean isValidBillOfSale,
-        String uploadToken
+        String uploadToken,
+        String source
 ) {}
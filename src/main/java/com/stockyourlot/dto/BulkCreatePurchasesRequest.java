@@ -0,0 +1,15 @@
+package com.stockyourlot.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Purchases to create in one call. Rows are validated individually so one bad row does not reject the batch.
+ */
+public record BulkCreatePurchasesRequest(
+        @NotEmpty(message = "purchases must not be empty")
+        @Size(max = 500, message = "at most 500 purchases per request")
+        List<CreatePurchaseRequest> purchases
+) {}
@@ -0,0 +1,12 @@
+package com.stockyourlot.dto;
+
+import java.util.List;
+
+/**
+ * Result of a bulk create: counts plus one entry per request row, in request order.
+ */
+public record BulkCreatePurchasesResponse(
+        int created,
+        int rejected,
+        List<BulkPurchaseRowResult> results
+) {}
@@ -0,0 +1,25 @@
+package com.stockyourlot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one bulk row (index into the request list): the created purchase id, or the reason it was rejected.
+ * duplicateOfPurchaseId is set when a created row's VIN was already stored or appeared earlier in the batch.
+ */
+public record BulkPurchaseRowResult(
+        int index,
+        UUID purchaseId,
+        String error,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        UUID duplicateOfPurchaseId
+) {
+    public static BulkPurchaseRowResult created(int index, UUID purchaseId, UUID duplicateOfPurchaseId) {
+        return new BulkPurchaseRowResult(index, purchaseId, null, duplicateOfPurchaseId);
+    }
+
+    public static BulkPurchaseRowResult rejected(int index, String error) {
+        return new BulkPurchaseRowResult(index, null, error, null);
+    }
+}
@@ -0,0 +1,19 @@
+package com.stockyourlot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Fields extracted from one PDF holding both a bill of sale and a condition report. A section is null when no
+ * pages of that type were found; page numbers are 1-based. With an upload token each section's pages are stored as
+ * a PENDING file of its type under that token.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CombinedExtractionResponse(
+        BillOfSaleExtractionResponse billOfSale,
+        ConditionReportExtractionResponse conditionReport,
+        List<Integer> billOfSalePages,
+        List<Integer> conditionReportPages,
+        String uploadToken
+) {}
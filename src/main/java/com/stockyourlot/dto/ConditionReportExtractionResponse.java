@@ -4,7 +4,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Extracted fields from a condition report PDF (via LLM). Same as bill-of-sale extraction
- * but without purchase price or sale date. Returned to UI for form prefilling.
+ * but without purchase price or sale date. Returned to UI for form prefilling. source is which path produced
+ * them: "rules" (local pattern extraction), "openai" or "cache".
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record ConditionReportExtractionResponse(
@@ -17,5 +18,6 @@ public record ConditionReportExtractionResponse(
         Integer vehicleYear,
         Integer miles,
         Boolean isValidConditionReport,
-        String uploadToken
+        String uploadToken,
+        String source
 ) {}
@@ -34,5 +34,10 @@ public record CreatePurchaseRequest(
         String vehicleTrimLevel,
         BigDecimal transportQuote,
         /** Optional. When present, pending files uploaded with this token are claimed and linked to the new purchase. */
-        UUID uploadToken
+        UUID uploadToken,
+        /**
+         * Optional. A VIN that already exists is recorded (vehicles are bought again) and reported as
+         * duplicateOfPurchaseId; set to true to reject it with 409 instead (bulk: reject the row).
+         */
+        Boolean rejectDuplicateVin
 ) {}
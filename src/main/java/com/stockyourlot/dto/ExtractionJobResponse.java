@@ -0,0 +1,26 @@
+package com.stockyourlot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.stockyourlot.entity.ExtractionJobStatus;
+import com.stockyourlot.entity.FileType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * State of an asynchronous extraction job. result is the same JSON the synchronous extract endpoint returns
+ * (BillOfSaleExtractionResponse or ConditionReportExtractionResponse) once status is SUCCEEDED;
+ * errorStatus/errorMessage are set when status is FAILED.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ExtractionJobResponse(
+        UUID id,
+        FileType documentType,
+        ExtractionJobStatus status,
+        @JsonRawValue String result,
+        Integer errorStatus,
+        String errorMessage,
+        Instant createdAt,
+        Instant completedAt
+) {}
@@ -0,0 +1,15 @@
+package com.stockyourlot.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Time-bucketed purchase aggregates for an inclusive purchase-date range, ordered by bucket then group.
+ */
+public record PurchaseAnalyticsResponse(
+        AnalyticsBucket bucket,
+        AnalyticsGroupBy groupBy,
+        LocalDate startDate,
+        LocalDate endDate,
+        List<PurchaseAnalyticsRow> rows
+) {}
@@ -0,0 +1,24 @@
+package com.stockyourlot.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Aggregates for one time bucket and group. groupKey is the dealership/buyer id or the platform/make value;
+ * groupLabel is the dealership name or buyer email (same as groupKey otherwise). Commission and premium
+ * averages are per purchase, counting purchases without one as zero.
+ */
+public record PurchaseAnalyticsRow(
+        LocalDate bucketStart,
+        String groupKey,
+        String groupLabel,
+        long purchaseCount,
+        BigDecimal totalPurchasePrice,
+        BigDecimal averagePurchasePrice,
+        BigDecimal totalTransportQuote,
+        BigDecimal averageTransportQuote,
+        BigDecimal totalCommissions,
+        BigDecimal averageCommissions,
+        BigDecimal totalPremiums,
+        BigDecimal averagePremiums
+) {}
@@ -0,0 +1,23 @@
+package com.stockyourlot.dto;
+
+import com.stockyourlot.entity.User;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Commission line with the credited user's name and rule columns, selected in one statement for a page of purchases.
+ */
+public record PurchaseCommissionRow(
+        UUID purchaseId,
+        UUID userId,
+        String userFirstName,
+        String userLastName,
+        UUID ruleId,
+        String ruleName,
+        BigDecimal amount
+) {
+    public PurchaseCommissionItemDto toItem() {
+        return new PurchaseCommissionItemDto(userId, User.fullName(userFirstName, userLastName), ruleId, ruleName, amount);
+    }
+}
@@ -0,0 +1,25 @@
+package com.stockyourlot.dto;
+
+/**
+ * Output format for the streaming purchase export: one JSON object per line, or CSV with a header row.
+ */
+public enum PurchaseExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    PurchaseExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
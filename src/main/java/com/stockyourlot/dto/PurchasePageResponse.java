@@ -0,0 +1,12 @@
+package com.stockyourlot.dto;
+
+import java.util.List;
+
+/**
+ * One page of purchases (newest first). Pass nextCursor back as the cursor parameter to get the next page;
+ * null when there are no more purchases.
+ */
+public record PurchasePageResponse(
+        List<PurchaseResponse> items,
+        String nextCursor
+) {}
@@ -1,5 +1,6 @@
 package com.stockyourlot.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.stockyourlot.entity.PurchaseStatus;
 
 import java.math.BigDecimal;
@@ -30,5 +31,8 @@ public record PurchaseResponse(
         UUID billOfSaleFileId,
         UUID conditionReportFileId,
         List<PurchaseCommissionItemDto> commissions,
-        BigDecimal serviceFee
+        BigDecimal serviceFee,
+        /** Only on create: an earlier purchase with the same VIN, when there is one. */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        UUID duplicateOfPurchaseId
 ) {}
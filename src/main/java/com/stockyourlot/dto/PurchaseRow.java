@@ -0,0 +1,67 @@
+package com.stockyourlot.dto;
+
+import com.stockyourlot.entity.Purchase;
+import com.stockyourlot.entity.PurchaseStatus;
+import com.stockyourlot.entity.User;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Purchase columns plus the buyer and dealership columns a PurchaseResponse needs, selected in one statement by
+ * the list, search and export queries (JPQL constructor projection) instead of loading Purchase entities whose
+ * lazy buyer (with its eager roles) and dealership would each cost another select.
+ */
+public record PurchaseRow(
+        UUID id,
+        UUID buyerId,
+        String buyerFirstName,
+        String buyerLastName,
+        String buyerEmail,
+        UUID dealershipId,
+        String dealershipName,
+        LocalDate purchaseDate,
+        PurchaseStatus status,
+        String auctionPlatform,
+        String vin,
+        Integer miles,
+        BigDecimal purchasePrice,
+        String vehicleYear,
+        String vehicleMake,
+        String vehicleModel,
+        String vehicleTrimLevel,
+        BigDecimal transportQuote,
+        Instant createdAt
+) {
+    /** Row for an entity already in hand (create/update responses). */
+    public static PurchaseRow of(Purchase p) {
+        User b = p.getBuyer();
+        return new PurchaseRow(
+                p.getId(),
+                b != null ? b.getId() : null,
+                b != null ? b.getFirstName() : null,
+                b != null ? b.getLastName() : null,
+                b != null ? b.getEmail() : null,
+                p.getDealership() != null ? p.getDealership().getId() : null,
+                p.getDealership() != null ? p.getDealership().getName() : null,
+                p.getPurchaseDate(),
+                p.getStatus(),
+                p.getAuctionPlatform(),
+                p.getVin(),
+                p.getMiles(),
+                p.getPurchasePrice(),
+                p.getVehicleYear(),
+                p.getVehicleMake(),
+                p.getVehicleModel(),
+                p.getVehicleTrimLevel(),
+                p.getTransportQuote(),
+                p.getCreatedAt());
+    }
+
+    /** Same value as User.getUsername(). */
+    public String buyerFullName() {
+        return buyerId != null ? User.fullName(buyerFirstName, buyerLastName) : null;
+    }
+}
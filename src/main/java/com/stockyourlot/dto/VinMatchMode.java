@@ -0,0 +1,11 @@
+package com.stockyourlot.dto;
+
+/**
+ * How a VIN search term is matched: the full VIN, its leading characters, or its trailing characters (e.g. the
+ * last 6, which is how lot staff usually look a vehicle up).
+ */
+public enum VinMatchMode {
+    EXACT,
+    PREFIX,
+    SUFFIX
+}
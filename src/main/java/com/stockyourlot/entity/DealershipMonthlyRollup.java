@@ -0,0 +1,77 @@
+package com.stockyourlot.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Purchase, service fee and commission totals for one dealership and calendar month. Rows are written only by the
+ * native upserts in DealershipMonthlyRollupRepository; the entity is read-only.
+ */
+@Entity
+@Table(name = "dealership_monthly_rollup")
+@org.hibernate.annotations.Immutable
+public class DealershipMonthlyRollup {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "dealership_id", nullable = false)
+    private UUID dealershipId;
+
+    /** First day of the month. */
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(name = "purchase_count", nullable = false)
+    private long purchaseCount;
+
+    @Column(name = "total_price", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalPrice;
+
+    @Column(name = "total_service_fees", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalServiceFees;
+
+    @Column(name = "total_commissions", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalCommissions;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    protected DealershipMonthlyRollup() {}
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getDealershipId() {
+        return dealershipId;
+    }
+
+    public LocalDate getMonthStart() {
+        return monthStart;
+    }
+
+    public long getPurchaseCount() {
+        return purchaseCount;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public BigDecimal getTotalServiceFees() {
+        return totalServiceFees;
+    }
+
+    public BigDecimal getTotalCommissions() {
+        return totalCommissions;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
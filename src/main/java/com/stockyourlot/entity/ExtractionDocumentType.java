@@ -0,0 +1,11 @@
+package com.stockyourlot.entity;
+
+/**
+ * What an extraction cache entry was produced from. Stored as VARCHAR in extraction_results.document_type.
+ * COMBINED = one PDF holding both documents, extracted with a single completion.
+ */
+public enum ExtractionDocumentType {
+    BILL_OF_SALE,
+    CONDITION_REPORT,
+    COMBINED
+}
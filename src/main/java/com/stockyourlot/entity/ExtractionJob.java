@@ -0,0 +1,158 @@
+package com.stockyourlot.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Asynchronous bill-of-sale / condition-report extraction. The uploaded PDF lives in
+ * {@link ExtractionJobPayload} until the job finishes; result_json holds the extraction response on success.
+ */
+@Entity
+@Table(name = "extraction_jobs", indexes = {
+        @Index(name = "idx_extraction_jobs_status_created_at", columnList = "status, created_at")
+})
+public class ExtractionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 50)
+    private FileType documentType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ExtractionJobStatus status = ExtractionJobStatus.QUEUED;
+
+    @Column(name = "upload_token", length = 36)
+    private String uploadToken;
+
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    /** User who submitted the job; only they can read it. */
+    @Column(name = "submitted_by")
+    private UUID submittedBy;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "result_json", columnDefinition = "TEXT")
+    private String resultJson;
+
+    @Column(name = "error_status")
+    private Integer errorStatus;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    @PrePersist
+    void onPersist() {
+        createdAt = updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    public ExtractionJob() {}
+
+    public ExtractionJob(FileType documentType, String uploadToken, String fileName, UUID submittedBy) {
+        this.documentType = documentType;
+        this.uploadToken = uploadToken;
+        this.fileName = fileName;
+        this.submittedBy = submittedBy;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public FileType getDocumentType() {
+        return documentType;
+    }
+
+    public ExtractionJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ExtractionJobStatus status) {
+        this.status = status;
+    }
+
+    public String getUploadToken() {
+        return uploadToken;
+    }
+
+    public UUID getSubmittedBy() {
+        return submittedBy;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getResultJson() {
+        return resultJson;
+    }
+
+    public void setResultJson(String resultJson) {
+        this.resultJson = resultJson;
+    }
+
+    public Integer getErrorStatus() {
+        return errorStatus;
+    }
+
+    public void setErrorStatus(Integer errorStatus) {
+        this.errorStatus = errorStatus;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
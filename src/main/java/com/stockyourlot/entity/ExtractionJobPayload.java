@@ -0,0 +1,35 @@
+package com.stockyourlot.entity;
+
+import jakarta.persistence.*;
+
+import java.util.UUID;
+
+/**
+ * PDF bytes for an {@link ExtractionJob}, stored separately so job status reads never load the document.
+ */
+@Entity
+@Table(name = "extraction_job_payloads")
+public class ExtractionJobPayload {
+
+    @Id
+    @Column(name = "job_id")
+    private UUID jobId;
+
+    @Column(name = "content", nullable = false, length = 10 * 1024 * 1024)
+    private byte[] content;
+
+    protected ExtractionJobPayload() {}
+
+    public ExtractionJobPayload(UUID jobId, byte[] content) {
+        this.jobId = jobId;
+        this.content = content;
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,16 @@
+package com.stockyourlot.entity;
+
+/**
+ * Lifecycle of an asynchronous extraction job. QUEUED = waiting for a worker; RUNNING = claimed by a worker;
+ * SUCCEEDED / FAILED = finished (result or error stored on the job).
+ */
+public enum ExtractionJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,104 @@
+package com.stockyourlot.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Cached LLM output for one PDF (by content hash), model and prompt version. result_json is the raw completion
+ * content, re-parsed by the extraction service on a hit.
+ */
+@Entity
+@Table(name = "extraction_results")
+public class ExtractionResult {
+
+    @Id
+    @Column(name = "cache_key", length = 255)
+    private String cacheKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 50)
+    private ExtractionDocumentType documentType;
+
+    @Column(name = "model", nullable = false, length = 100)
+    private String model;
+
+    @Column(name = "prompt_version", nullable = false, length = 50)
+    private String promptVersion;
+
+    @Column(name = "content_sha256", nullable = false, length = 64)
+    private String contentSha256;
+
+    @Column(name = "result_json", nullable = false, columnDefinition = "TEXT")
+    private String resultJson;
+
+    @Column(name = "total_tokens", nullable = false)
+    private int totalTokens;
+
+    @Column(name = "hit_count", nullable = false)
+    private long hitCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "last_hit_at")
+    private Instant lastHitAt;
+
+    @PrePersist
+    void onPersist() {
+        createdAt = Instant.now();
+    }
+
+    protected ExtractionResult() {}
+
+    public ExtractionResult(String cacheKey, ExtractionDocumentType documentType, String model, String promptVersion,
+                            String contentSha256, String resultJson, int totalTokens) {
+        this.cacheKey = cacheKey;
+        this.documentType = documentType;
+        this.model = model;
+        this.promptVersion = promptVersion;
+        this.contentSha256 = contentSha256;
+        this.resultJson = resultJson;
+        this.totalTokens = totalTokens;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public ExtractionDocumentType getDocumentType() {
+        return documentType;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getPromptVersion() {
+        return promptVersion;
+    }
+
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
+    public String getResultJson() {
+        return resultJson;
+    }
+
+    public int getTotalTokens() {
+        return totalTokens;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastHitAt() {
+        return lastHitAt;
+    }
+}
@@ -43,6 +43,10 @@ public class FileMetadata {
     @Column(name = "object_path", nullable = false, length = 512)
     private String objectPath;
 
+    /** GCS generation of the object at objectPath; null for rows created before it was tracked. */
+    @Column(name = "object_generation")
+    private Long objectGeneration;
+
     @Column(name = "content_type", nullable = false, length = 100)
     private String contentType;
 
@@ -120,6 +124,14 @@ public class FileMetadata {
         this.objectPath = objectPath;
     }
 
+    public Long getObjectGeneration() {
+        return objectGeneration;
+    }
+
+    public void setObjectGeneration(Long objectGeneration) {
+        this.objectGeneration = objectGeneration;
+    }
+
     public String getContentType() {
         return contentType;
     }
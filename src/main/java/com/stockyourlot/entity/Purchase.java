@@ -11,7 +11,10 @@ import java.util.UUID;
 @Table(name = "purchases", indexes = {
         @Index(name = "idx_purchases_buyer_id", columnList = "buyer_id"),
         @Index(name = "idx_purchases_dealership_id", columnList = "dealership_id"),
-        @Index(name = "idx_purchases_created_at", columnList = "created_at")
+        @Index(name = "idx_purchases_created_at", columnList = "created_at"),
+        @Index(name = "idx_purchases_created_at_id", columnList = "created_at DESC, id DESC"),
+        @Index(name = "idx_purchases_buyer_created_at_id", columnList = "buyer_id, created_at DESC, id DESC"),
+        @Index(name = "idx_purchases_dealership_created_at_id", columnList = "dealership_id, created_at DESC, id DESC")
 })
 public class Purchase {
 
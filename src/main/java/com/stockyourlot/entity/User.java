@@ -155,6 +155,11 @@ public class User implements UserDetails {
 
     /** Derived: first name + " " + last name (trimmed, null-safe). */
     public String getFullName() {
+        return fullName(firstName, lastName);
+    }
+
+    /** "First Last", trimmed; empty when both are missing. Also used for projected rows. */
+    public static String fullName(String firstName, String lastName) {
         String first = firstName != null ? firstName.trim() : "";
         String last = lastName != null ? lastName.trim() : "";
         return (first + " " + last).trim();
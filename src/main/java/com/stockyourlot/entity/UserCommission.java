@@ -43,6 +43,10 @@ public class UserCommission {
     @Column(name = "number_of_sales")
     private Integer numberOfSales;
 
+    /** Sales dated on/after startDate; maintained only by repository bulk updates, never written by save(). */
+    @Column(name = "sales_count", nullable = false, updatable = false)
+    private int salesCount;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -125,6 +129,10 @@ public class UserCommission {
         this.numberOfSales = numberOfSales;
     }
 
+    public int getSalesCount() {
+        return salesCount;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
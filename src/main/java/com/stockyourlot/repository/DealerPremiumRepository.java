@@ -3,9 +3,12 @@ package com.stockyourlot.repository;
 import com.stockyourlot.entity.DealerPremium;
 import com.stockyourlot.entity.DealerPremiumStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -33,4 +36,25 @@ public interface DealerPremiumRepository extends JpaRepository<DealerPremium, UU
             @Param("status") DealerPremiumStatus status);
 
     void deleteByDealership_Id(UUID dealershipId);
+
+    /** Counts one more sale on every ACTIVE assignment that had started by the purchase date. */
+    @Modifying
+    @Query("UPDATE DealerPremium dp SET dp.salesCount = dp.salesCount + 1 " +
+            "WHERE dp.dealership.id = :dealershipId AND dp.status = com.stockyourlot.entity.DealerPremiumStatus.ACTIVE AND dp.startDate <= :purchaseDate")
+    int incrementSalesCount(@Param("dealershipId") UUID dealershipId, @Param("purchaseDate") LocalDate purchaseDate);
+
+    /** Expires ACTIVE assignments past their end date or whose sales count reached number_of_sales. */
+    @Modifying
+    @Query("UPDATE DealerPremium dp SET dp.status = com.stockyourlot.entity.DealerPremiumStatus.EXPIRED, dp.updatedAt = :now " +
+            "WHERE dp.dealership.id = :dealershipId AND dp.status = com.stockyourlot.entity.DealerPremiumStatus.ACTIVE " +
+            "AND ((dp.endDate IS NOT NULL AND dp.endDate < :purchaseDate) " +
+            "OR (dp.numberOfSales IS NOT NULL AND dp.salesCount >= dp.numberOfSales))")
+    int expireReached(@Param("dealershipId") UUID dealershipId, @Param("purchaseDate") LocalDate purchaseDate, @Param("now") Instant now);
+
+    /** Recounts sales for the owner's ACTIVE assignments from purchases (after date/owner changes). */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DealerPremium dp SET dp.salesCount = " +
+            "(SELECT CAST(COUNT(p) AS Integer) FROM Purchase p WHERE p.dealership.id = dp.dealership.id AND p.purchaseDate >= dp.startDate) " +
+            "WHERE dp.dealership.id = :dealershipId AND dp.status = com.stockyourlot.entity.DealerPremiumStatus.ACTIVE")
+    int recomputeSalesCounts(@Param("dealershipId") UUID dealershipId);
 }
@@ -0,0 +1,94 @@
+package com.stockyourlot.repository;
+
+import com.stockyourlot.entity.DealershipMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Writes are native Postgres upserts so concurrent purchases in the same dealership/month add to one row
+ * without a read-modify-write.
+ */
+public interface DealershipMonthlyRollupRepository extends JpaRepository<DealershipMonthlyRollup, UUID> {
+
+    Optional<DealershipMonthlyRollup> findByDealershipIdAndMonthStart(UUID dealershipId, LocalDate monthStart);
+
+    @Query("SELECT r.dealershipId, SUM(r.purchaseCount) FROM DealershipMonthlyRollup r WHERE r.dealershipId IN :ids GROUP BY r.dealershipId")
+    List<Object[]> sumPurchaseCountByDealershipIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT COALESCE(SUM(r.purchaseCount), 0) FROM DealershipMonthlyRollup r WHERE r.dealershipId = :dealershipId")
+    long sumPurchaseCountByDealershipId(@Param("dealershipId") UUID dealershipId);
+
+    @Query("SELECT COALESCE(SUM(r.totalServiceFees), 0) FROM DealershipMonthlyRollup r WHERE r.dealershipId = :dealershipId")
+    BigDecimal sumServiceFeesByDealershipId(@Param("dealershipId") UUID dealershipId);
+
+    /** Adds the deltas to the dealership/month row, creating it on first use. */
+    @Modifying
+    @Query(value = "INSERT INTO dealership_monthly_rollup (dealership_id, month_start, purchase_count, total_price, total_service_fees, total_commissions, updated_at) " +
+            "VALUES (:dealershipId, :monthStart, :purchases, :price, :serviceFees, :commissions, now()) " +
+            "ON CONFLICT (dealership_id, month_start) DO UPDATE SET " +
+            "purchase_count = dealership_monthly_rollup.purchase_count + EXCLUDED.purchase_count, " +
+            "total_price = dealership_monthly_rollup.total_price + EXCLUDED.total_price, " +
+            "total_service_fees = dealership_monthly_rollup.total_service_fees + EXCLUDED.total_service_fees, " +
+            "total_commissions = dealership_monthly_rollup.total_commissions + EXCLUDED.total_commissions, " +
+            "updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int add(@Param("dealershipId") UUID dealershipId, @Param("monthStart") LocalDate monthStart,
+            @Param("purchases") long purchases, @Param("price") BigDecimal price,
+            @Param("serviceFees") BigDecimal serviceFees, @Param("commissions") BigDecimal commissions);
+
+    /** Recomputes one dealership/month row from purchases, premiums and commissions (after a purchase moved). */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO dealership_monthly_rollup (dealership_id, month_start, purchase_count, total_price, total_service_fees, total_commissions, updated_at) " +
+            "SELECT :dealershipId, :monthStart, " +
+            "(SELECT COUNT(*) FROM purchases p WHERE p.dealership_id = :dealershipId AND p.purchase_date >= :monthStart AND p.purchase_date < :nextMonth), " +
+            "(SELECT COALESCE(SUM(p.purchase_price), 0) FROM purchases p WHERE p.dealership_id = :dealershipId AND p.purchase_date >= :monthStart AND p.purchase_date < :nextMonth), " +
+            "(SELECT COALESCE(SUM(pp.amount), 0) FROM purchase_premium pp JOIN purchases p ON p.id = pp.purchase_id " +
+            "WHERE pp.dealership_id = :dealershipId AND p.purchase_date >= :monthStart AND p.purchase_date < :nextMonth), " +
+            "(SELECT COALESCE(SUM(pc.amount), 0) FROM purchase_commission pc JOIN purchases p ON p.id = pc.purchase_id " +
+            "WHERE p.dealership_id = :dealershipId AND p.purchase_date >= :monthStart AND p.purchase_date < :nextMonth), " +
+            "now() " +
+            "ON CONFLICT (dealership_id, month_start) DO UPDATE SET " +
+            "purchase_count = EXCLUDED.purchase_count, total_price = EXCLUDED.total_price, " +
+            "total_service_fees = EXCLUDED.total_service_fees, total_commissions = EXCLUDED.total_commissions, " +
+            "updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int refresh(@Param("dealershipId") UUID dealershipId, @Param("monthStart") LocalDate monthStart,
+                @Param("nextMonth") LocalDate nextMonth);
+
+    /** Blocks incremental writers (readers are unaffected) until the surrounding rebuild transaction ends. */
+    @Modifying
+    @Query(value = "LOCK TABLE dealership_monthly_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+    int lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM dealership_monthly_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    /** Same aggregation as the V30 backfill. */
+    @Modifying
+    @Query(value = "INSERT INTO dealership_monthly_rollup (dealership_id, month_start, purchase_count, total_price, total_service_fees, total_commissions, updated_at) " +
+            "SELECT t.dealership_id, t.month_start, SUM(t.purchase_count), SUM(t.total_price), SUM(t.total_service_fees), SUM(t.total_commissions), now() " +
+            "FROM (" +
+            "SELECT p.dealership_id, CAST(date_trunc('month', p.purchase_date) AS DATE) AS month_start, " +
+            "1 AS purchase_count, COALESCE(p.purchase_price, 0) AS total_price, 0 AS total_service_fees, 0 AS total_commissions " +
+            "FROM purchases p WHERE p.dealership_id IS NOT NULL AND p.purchase_date IS NOT NULL " +
+            "UNION ALL " +
+            "SELECT pp.dealership_id, CAST(date_trunc('month', p.purchase_date) AS DATE), 0, 0, pp.amount, 0 " +
+            "FROM purchase_premium pp JOIN purchases p ON p.id = pp.purchase_id WHERE p.purchase_date IS NOT NULL " +
+            "UNION ALL " +
+            "SELECT p.dealership_id, CAST(date_trunc('month', p.purchase_date) AS DATE), 0, 0, 0, pc.amount " +
+            "FROM purchase_commission pc JOIN purchases p ON p.id = pc.purchase_id " +
+            "WHERE p.dealership_id IS NOT NULL AND p.purchase_date IS NOT NULL" +
+            ") t GROUP BY t.dealership_id, t.month_start",
+            nativeQuery = true)
+    int insertFromHistory();
+}
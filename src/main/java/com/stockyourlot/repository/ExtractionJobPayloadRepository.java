@@ -0,0 +1,9 @@
+package com.stockyourlot.repository;
+
+import com.stockyourlot.entity.ExtractionJobPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface ExtractionJobPayloadRepository extends JpaRepository<ExtractionJobPayload, UUID> {
+}
@@ -0,0 +1,61 @@
+package com.stockyourlot.repository;
+
+import com.stockyourlot.entity.ExtractionJob;
+import com.stockyourlot.entity.ExtractionJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ExtractionJobRepository extends JpaRepository<ExtractionJob, UUID> {
+
+    /**
+     * Atomically moves a QUEUED job to RUNNING. Returns 1 if this caller claimed it, 0 if another worker
+     * (possibly on another pod) already did or the job no longer exists.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExtractionJob j SET j.status = com.stockyourlot.entity.ExtractionJobStatus.RUNNING, " +
+            "j.startedAt = :now, j.updatedAt = :now, j.attempts = j.attempts + 1 " +
+            "WHERE j.id = :id AND j.status = com.stockyourlot.entity.ExtractionJobStatus.QUEUED")
+    int claim(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Puts RUNNING jobs whose worker started before the cutoff (e.g. pod restarted mid-extraction) back in the queue.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ExtractionJob j SET j.status = com.stockyourlot.entity.ExtractionJobStatus.QUEUED, j.updatedAt = :now " +
+            "WHERE j.status = com.stockyourlot.entity.ExtractionJobStatus.RUNNING AND j.startedAt < :startedBefore " +
+            "AND j.attempts < :maxAttempts")
+    int requeueStale(@Param("startedBefore") Instant startedBefore, @Param("maxAttempts") int maxAttempts, @Param("now") Instant now);
+
+    /**
+     * Fails RUNNING jobs that went stale after their last allowed attempt.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ExtractionJob j SET j.status = com.stockyourlot.entity.ExtractionJobStatus.FAILED, " +
+            "j.errorStatus = 500, j.errorMessage = 'Extraction did not finish after repeated attempts', " +
+            "j.completedAt = :now, j.updatedAt = :now " +
+            "WHERE j.status = com.stockyourlot.entity.ExtractionJobStatus.RUNNING AND j.startedAt < :startedBefore " +
+            "AND j.attempts >= :maxAttempts")
+    int failStale(@Param("startedBefore") Instant startedBefore, @Param("maxAttempts") int maxAttempts, @Param("now") Instant now);
+
+    @Query("SELECT j.id FROM ExtractionJob j WHERE j.status = :status ORDER BY j.createdAt ASC")
+    List<UUID> findIdsByStatusOrderByCreatedAtAsc(@Param("status") ExtractionJobStatus status, Pageable pageable);
+
+    List<ExtractionJob> findByIdInAndStatusIn(Collection<UUID> ids, Collection<ExtractionJobStatus> statuses);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExtractionJob j WHERE j.completedAt < :completedBefore")
+    int deleteFinishedBefore(@Param("completedBefore") Instant completedBefore);
+}
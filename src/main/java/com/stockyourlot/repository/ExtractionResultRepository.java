@@ -0,0 +1,24 @@
+package com.stockyourlot.repository;
+
+import com.stockyourlot.entity.ExtractionResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface ExtractionResultRepository extends JpaRepository<ExtractionResult, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ExtractionResult r SET r.hitCount = r.hitCount + :hits, r.lastHitAt = :now WHERE r.cacheKey = :cacheKey")
+    int recordHits(@Param("cacheKey") String cacheKey, @Param("hits") long hits, @Param("now") Instant now);
+
+    /** Removes entries created before the cutoff that have not been hit since then. */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExtractionResult r WHERE r.createdAt < :before AND (r.lastHitAt IS NULL OR r.lastHitAt < :before)")
+    int deleteUnusedSince(@Param("before") Instant before);
+}
@@ -2,10 +2,17 @@ package com.stockyourlot.repository;
 
 import com.stockyourlot.entity.FileMetadata;
 import com.stockyourlot.entity.FileStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID> {
@@ -17,4 +24,26 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadata, UUID
     List<FileMetadata> findByDealership_IdOrderByCreatedAtDesc(UUID dealershipId);
 
     List<FileMetadata> findByUploadTokenAndStatusOrderByCreatedAtAsc(String uploadToken, FileStatus status);
+
+    @Query("SELECT f FROM FileMetadata f JOIN FETCH f.purchase p JOIN FETCH f.dealership WHERE f.id = :id")
+    Optional<FileMetadata> findWithPurchaseAndDealershipById(@Param("id") UUID id);
+
+    /** Claimed (linked to a purchase) files whose object still sits under the given prefix, oldest first. */
+    @Query("SELECT f.id FROM FileMetadata f WHERE f.purchase IS NOT NULL " +
+            "AND f.status = com.stockyourlot.entity.FileStatus.ACTIVE AND f.objectPath LIKE CONCAT(:prefix, '%') " +
+            "AND f.updatedAt < :updatedBefore ORDER BY f.updatedAt ASC")
+    List<UUID> findClaimedIdsWithPathPrefix(@Param("prefix") String prefix,
+                                            @Param("updatedBefore") Instant updatedBefore,
+                                            Pageable pageable);
+
+    /** Points the row at its new object only if it still has the expected path; returns rows updated. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileMetadata f SET f.objectPath = :newPath, f.objectGeneration = :generation, f.updatedAt = :now " +
+            "WHERE f.id = :id AND f.objectPath = :expectedPath")
+    int updateObjectPath(@Param("id") UUID id,
+                         @Param("expectedPath") String expectedPath,
+                         @Param("newPath") String newPath,
+                         @Param("generation") Long generation,
+                         @Param("now") Instant now);
 }
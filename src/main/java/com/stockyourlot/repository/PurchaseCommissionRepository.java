@@ -1,5 +1,6 @@
 package com.stockyourlot.repository;
 
+import com.stockyourlot.dto.PurchaseCommissionRow;
 import com.stockyourlot.entity.PurchaseCommission;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,10 +11,11 @@ import java.util.UUID;
 
 public interface PurchaseCommissionRepository extends JpaRepository<PurchaseCommission, UUID> {
 
-    List<PurchaseCommission> findByPurchase_IdOrderByCreatedAtAsc(UUID purchaseId);
-
-    @Query("SELECT pc FROM PurchaseCommission pc JOIN FETCH pc.user JOIN FETCH pc.rule JOIN FETCH pc.purchase WHERE pc.purchase.id IN :purchaseIds ORDER BY pc.purchase.id, pc.createdAt")
-    List<PurchaseCommission> findByPurchase_IdInWithUserAndRuleOrderByCreatedAtAsc(@Param("purchaseIds") List<UUID> purchaseIds);
+    /** Commission lines for the purchases, oldest first per purchase, as one projected statement (no entity graphs). */
+    @Query("SELECT new com.stockyourlot.dto.PurchaseCommissionRow(pc.purchase.id, u.id, u.firstName, u.lastName, r.id, r.ruleName, pc.amount) " +
+            "FROM PurchaseCommission pc JOIN pc.user u LEFT JOIN pc.rule r " +
+            "WHERE pc.purchase.id IN :purchaseIds ORDER BY pc.purchase.id, pc.createdAt")
+    List<PurchaseCommissionRow> findRowsByPurchaseIds(@Param("purchaseIds") List<UUID> purchaseIds);
 
     List<PurchaseCommission> findByUser_IdOrderByCreatedAtDesc(UUID userId);
 }
@@ -1,34 +1,105 @@
 package com.stockyourlot.repository;
 
+import com.stockyourlot.dto.PurchaseRow;
 import com.stockyourlot.entity.Purchase;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
-import org.springframework.data.domain.Sort;
-
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface PurchaseRepository extends JpaRepository<Purchase, UUID> {
 
-    List<Purchase> findByBuyerIdOrderByCreatedAtDesc(UUID buyerId);
+    /** Projection prefix shared by the row queries: one statement with buyer and dealership joined. */
+    String ROW_SELECT = "SELECT new com.stockyourlot.dto.PurchaseRow(p.id, b.id, b.firstName, b.lastName, b.email, " +
+            "d.id, d.name, p.purchaseDate, p.status, p.auctionPlatform, p.vin, p.miles, p.purchasePrice, " +
+            "p.vehicleYear, p.vehicleMake, p.vehicleModel, p.vehicleTrimLevel, p.transportQuote, p.createdAt) " +
+            "FROM Purchase p JOIN p.buyer b LEFT JOIN p.dealership d ";
+
+    /**
+     * Keyset page over all purchases, newest first. Pass null cursor values for the first page and null dates
+     * for an open range; the page size comes from the Pageable (page number is ignored by the caller).
+     */
+    @Query(ROW_SELECT + "WHERE (:startDate IS NULL OR p.purchaseDate >= :startDate) " +
+            "AND (:endDate IS NULL OR p.purchaseDate <= :endDate) " +
+            "AND (:cursorCreatedAt IS NULL OR p.createdAt < :cursorCreatedAt " +
+            "OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseRow> findPage(@Param("startDate") LocalDate startDate,
+                               @Param("endDate") LocalDate endDate,
+                               @Param("cursorCreatedAt") Instant cursorCreatedAt,
+                               @Param("cursorId") UUID cursorId,
+                               Pageable pageable);
 
-    List<Purchase> findByDealership_IdOrderByCreatedAtDesc(UUID dealershipId);
+    /**
+     * Keyset page of a buyer's purchases, newest first. Same cursor semantics as {@link #findPage}.
+     */
+    @Query(ROW_SELECT + "WHERE p.buyer.id = :buyerId " +
+            "AND (:cursorCreatedAt IS NULL OR p.createdAt < :cursorCreatedAt " +
+            "OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseRow> findPageByBuyerId(@Param("buyerId") UUID buyerId,
+                                        @Param("cursorCreatedAt") Instant cursorCreatedAt,
+                                        @Param("cursorId") UUID cursorId,
+                                        Pageable pageable);
 
-    List<Purchase> findByPurchaseDateBetween(LocalDate startInclusive, LocalDate endInclusive, Sort sort);
+    /**
+     * Keyset page of a dealership's purchases, newest first. Same cursor semantics as {@link #findPage}.
+     */
+    @Query(ROW_SELECT + "WHERE p.dealership.id = :dealershipId " +
+            "AND (:cursorCreatedAt IS NULL OR p.createdAt < :cursorCreatedAt " +
+            "OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseRow> findPageByDealershipId(@Param("dealershipId") UUID dealershipId,
+                                             @Param("cursorCreatedAt") Instant cursorCreatedAt,
+                                             @Param("cursorId") UUID cursorId,
+                                             Pageable pageable);
 
-    List<Purchase> findByPurchaseDateGreaterThanEqual(LocalDate startInclusive, Sort sort);
+    /**
+     * Streams purchase rows in a purchase-date range (null = open), newest first.
+     * Backed by a JDBC cursor (fetch size 500); must be consumed inside a transaction and closed by the caller.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ROW_SELECT +
+            "WHERE (:startDate IS NULL OR p.purchaseDate >= :startDate) " +
+            "AND (:endDate IS NULL OR p.purchaseDate <= :endDate) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Stream<PurchaseRow> streamByPurchaseDateRange(@Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate);
 
-    List<Purchase> findByPurchaseDateLessThanEqual(LocalDate endInclusive, Sort sort);
+    /** Purchases with exactly this upper-cased VIN, newest first (idx_purchases_vin_upper). */
+    @Query(ROW_SELECT + "WHERE UPPER(p.vin) = :vin ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseRow> findByNormalizedVin(@Param("vin") String vin, Pageable pageable);
 
-    long countByDealership_Id(UUID dealershipId);
+    /** Purchases whose upper-cased VIN matches a prefix pattern ('ABC%'), newest first (idx_purchases_vin_upper). */
+    @Query(ROW_SELECT + "WHERE UPPER(p.vin) LIKE :pattern ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseRow> findByNormalizedVinLike(@Param("pattern") String pattern, Pageable pageable);
 
-    long countByBuyer_IdAndPurchaseDateBetween(UUID buyerId, LocalDate startInclusive, LocalDate endInclusive);
+    /**
+     * Purchases whose reversed upper-cased VIN matches a prefix pattern, i.e. VIN suffix search, newest first
+     * (idx_purchases_vin_reversed).
+     */
+    @Query(ROW_SELECT + "WHERE FUNCTION('reverse', UPPER(p.vin)) LIKE :reversedPattern " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PurchaseRow> findByReversedNormalizedVinLike(@Param("reversedPattern") String reversedPattern, Pageable pageable);
 
-    long countByDealership_IdAndPurchaseDateBetween(UUID dealershipId, LocalDate startInclusive, LocalDate endInclusive);
+    /** Rows for the given purchase ids, in no particular order. */
+    @Query(ROW_SELECT + "WHERE p.id IN :ids")
+    List<PurchaseRow> findRowsByIdIn(@Param("ids") Collection<UUID> ids);
 
-    @Query("SELECT p.dealership.id, COUNT(p) FROM Purchase p WHERE p.dealership.id IN :ids GROUP BY p.dealership.id")
-    List<Object[]> countByDealershipIds(@Param("ids") List<UUID> ids);
+    /** (upper-cased VIN, purchase id) for every purchase with one of the given upper-cased VINs. */
+    @Query("SELECT UPPER(p.vin), p.id FROM Purchase p WHERE UPPER(p.vin) IN :vins")
+    List<Object[]> findIdsByNormalizedVinIn(@Param("vins") Collection<String> vins);
 }
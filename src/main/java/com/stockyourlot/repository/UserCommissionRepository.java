@@ -3,9 +3,12 @@ package com.stockyourlot.repository;
 import com.stockyourlot.entity.UserCommission;
 import com.stockyourlot.entity.UserCommissionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -46,4 +49,25 @@ public interface UserCommissionRepository extends JpaRepository<UserCommission,
             @Param("status") UserCommissionStatus status);
 
     void deleteByUser_Id(UUID userId);
+
+    /** Counts one more sale on every ACTIVE assignment that had started by the purchase date. */
+    @Modifying
+    @Query("UPDATE UserCommission uc SET uc.salesCount = uc.salesCount + 1 " +
+            "WHERE uc.user.id = :userId AND uc.status = com.stockyourlot.entity.UserCommissionStatus.ACTIVE AND uc.startDate <= :purchaseDate")
+    int incrementSalesCount(@Param("userId") UUID userId, @Param("purchaseDate") LocalDate purchaseDate);
+
+    /** Expires ACTIVE assignments past their end date or whose sales count reached number_of_sales. */
+    @Modifying
+    @Query("UPDATE UserCommission uc SET uc.status = com.stockyourlot.entity.UserCommissionStatus.EXPIRED, uc.updatedAt = :now " +
+            "WHERE uc.user.id = :userId AND uc.status = com.stockyourlot.entity.UserCommissionStatus.ACTIVE " +
+            "AND ((uc.endDate IS NOT NULL AND uc.endDate < :purchaseDate) " +
+            "OR (uc.numberOfSales IS NOT NULL AND uc.salesCount >= uc.numberOfSales))")
+    int expireReached(@Param("userId") UUID userId, @Param("purchaseDate") LocalDate purchaseDate, @Param("now") Instant now);
+
+    /** Recounts sales for the owner's ACTIVE assignments from purchases (after date/owner changes). */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCommission uc SET uc.salesCount = " +
+            "(SELECT CAST(COUNT(p) AS Integer) FROM Purchase p WHERE p.buyer.id = uc.user.id AND p.purchaseDate >= uc.startDate) " +
+            "WHERE uc.user.id = :userId AND uc.status = com.stockyourlot.entity.UserCommissionStatus.ACTIVE")
+    int recomputeSalesCounts(@Param("userId") UUID userId);
 }
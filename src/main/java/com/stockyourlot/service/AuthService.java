@@ -88,7 +88,7 @@ public class AuthService {
                         du.getDealership().getName(),
                         du.getDealershipRole()))
                 .toList();
-        String token = jwtUtil.generateToken(userWithDealerships.getEmail(), roleNames);
+        String token = jwtUtil.generateToken(userWithDealerships);
         return new LoginResponse("Login successful", userWithDealerships.getUsername(), userWithDealerships.getEmail(),
                 roleNames, dealershipRoles, token);
     }
@@ -0,0 +1,337 @@
+package com.stockyourlot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockyourlot.dto.BillOfSaleExtractionResponse;
+import com.stockyourlot.dto.CombinedExtractionResponse;
+import com.stockyourlot.dto.ConditionReportExtractionResponse;
+import com.stockyourlot.entity.ExtractionDocumentType;
+import com.stockyourlot.entity.FileType;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Extracts both bill-of-sale and condition-report fields from one PDF that contains both documents. The PDF is
+ * parsed once, each page is classified by keywords, and both field sets come back from a single OpenAI call.
+ * With an upload token, each document's pages are split into their own PDF and saved as PENDING files under that
+ * token, exactly as the two single-document endpoints would have stored them.
+ */
+@Service
+public class CombinedExtractionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CombinedExtractionService.class);
+    private static final int MAX_SECTION_CHARS = 15_000; // per document, so the prompt stays within the single-document budget
+    private static final String PENDING_BILL_OF_SALE_FILE = "bill-of-sale.pdf";
+    private static final String PENDING_CONDITION_REPORT_FILE = "condition-report.pdf";
+    /** Part of the extraction cache key; bump when the prompt, page classification or text preprocessing changes. */
+    private static final String PROMPT_VERSION = "combined-v1";
+
+    private static final List<String> BILL_OF_SALE_KEYWORDS = List.of(
+            "bill of sale", "purchase price", "sale price", "sales price", "buyer", "seller", "sold to",
+            "total due", "amount due", "invoice", "payment", "buyer fee");
+    private static final List<String> CONDITION_REPORT_KEYWORDS = List.of(
+            "condition report", "inspection", "damage", "condition grade", "grade", "tire", "tread", "paint",
+            "scratch", "dent", "announcement", "frame", "interior", "exterior");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BillOfSaleExtractionService billOfSaleExtractionService;
+    private final ConditionReportExtractionService conditionReportExtractionService;
+    private final GcsFileStorageService gcsFileStorageService;
+    private final FileMetadataService fileMetadataService;
+    private final ExtractionResultCache extractionResultCache;
+    private final OpenAiClient openAiClient;
+
+    public CombinedExtractionService(BillOfSaleExtractionService billOfSaleExtractionService,
+                                     ConditionReportExtractionService conditionReportExtractionService,
+                                     GcsFileStorageService gcsFileStorageService,
+                                     FileMetadataService fileMetadataService,
+                                     ExtractionResultCache extractionResultCache,
+                                     OpenAiClient openAiClient) {
+        this.billOfSaleExtractionService = billOfSaleExtractionService;
+        this.conditionReportExtractionService = conditionReportExtractionService;
+        this.gcsFileStorageService = gcsFileStorageService;
+        this.fileMetadataService = fileMetadataService;
+        this.extractionResultCache = extractionResultCache;
+        this.openAiClient = openAiClient;
+    }
+
+    public CombinedExtractionResponse extractFromPdf(MultipartFile file, UUID uploadToken) {
+        billOfSaleExtractionService.validateUpload(file);
+        try (SpooledPdf pdf = SpooledPdf.spool(file)) {
+            return extract(pdf, uploadToken);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read uploaded file");
+        }
+    }
+
+    /**
+     * Pages of one document type: 1-based page numbers, their text, and (when requested) a temp file holding just
+     * those pages. pdf is null when the section covers every page; the upload itself is then stored as-is.
+     */
+    private record Section(List<Integer> pages, String text, Path pdf) {
+
+        boolean isEmpty() {
+            return pages.isEmpty();
+        }
+    }
+
+    /** Closing deletes the sections' temp files. */
+    private record Split(Section billOfSale, Section conditionReport) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            deletePdf(billOfSale);
+            deletePdf(conditionReport);
+        }
+    }
+
+    private CombinedExtractionResponse extract(SpooledPdf pdf, UUID uploadToken) {
+        String contentSha256;
+        try {
+            contentSha256 = pdf.sha256Hex();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read uploaded file");
+        }
+        String tokenStr = uploadToken != null ? uploadToken.toString() : null;
+        boolean store = tokenStr != null && gcsFileStorageService.isBucketConfigured();
+        try (Split split = split(pdf, store)) {
+            return extract(pdf, contentSha256, tokenStr, store, split);
+        }
+    }
+
+    private CombinedExtractionResponse extract(SpooledPdf pdf, String contentSha256, String tokenStr, boolean store,
+                                               Split split) {
+        ExtractionResultCache.Completion cached = extractionResultCache
+                .get(ExtractionDocumentType.COMBINED, openAiClient.model(), PROMPT_VERSION, contentSha256)
+                .orElse(null);
+        if (cached == null && !openAiClient.isConfigured()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "OpenAI API key is not configured (OPENAI_API_KEY)");
+        }
+        ExtractionResultCache.Completion completion = cached != null ? cached : callOpenAi(split);
+        JsonNode node = parseCombined(completion.content());
+        BillOfSaleExtractionResponse billOfSale = hasSection(node, "billOfSale", split.billOfSale())
+                ? billOfSaleExtractionService.parseExtractionResponse(node.get("billOfSale").toString())
+                : null;
+        ConditionReportExtractionResponse conditionReport = hasSection(node, "conditionReport", split.conditionReport())
+                ? conditionReportExtractionService.parseExtractionResponse(node.get("conditionReport").toString())
+                : null;
+        if (cached == null) {
+            extractionResultCache.put(ExtractionDocumentType.COMBINED, openAiClient.model(), PROMPT_VERSION, contentSha256, completion);
+        }
+
+        if (store) {
+            if (billOfSale != null) {
+                savePending(tokenStr, PENDING_BILL_OF_SALE_FILE, FileType.BILL_OF_SALE, pdf, split.billOfSale());
+            }
+            if (conditionReport != null) {
+                savePending(tokenStr, PENDING_CONDITION_REPORT_FILE, FileType.CONDITION_REPORT, pdf, split.conditionReport());
+            }
+        }
+        String source = cached != null ? LocalFieldExtractor.SOURCE_CACHE : LocalFieldExtractor.SOURCE_OPENAI;
+        if (billOfSale != null) {
+            billOfSale = new BillOfSaleExtractionResponse(
+                    billOfSale.vin(), billOfSale.make(), billOfSale.model(), billOfSale.trim(), billOfSale.color(),
+                    billOfSale.purchasePrice(), billOfSale.auction(), billOfSale.vehicleYear(), billOfSale.miles(),
+                    billOfSale.saleDate(), billOfSale.isValidBillOfSale(), tokenStr, source);
+        }
+        if (conditionReport != null) {
+            conditionReport = new ConditionReportExtractionResponse(
+                    conditionReport.vin(), conditionReport.make(), conditionReport.model(), conditionReport.trim(),
+                    conditionReport.color(), conditionReport.auction(), conditionReport.vehicleYear(),
+                    conditionReport.miles(), conditionReport.isValidConditionReport(), tokenStr, source);
+        }
+        return new CombinedExtractionResponse(billOfSale, conditionReport,
+                split.billOfSale().pages(), split.conditionReport().pages(), tokenStr);
+    }
+
+    /** Whether the completion has an object for key and the PDF had pages for that document. */
+    private static boolean hasSection(JsonNode node, String key, Section section) {
+        return !section.isEmpty() && node.hasNonNull(key) && node.get(key).isObject();
+    }
+
+    /**
+     * Strips each page once and assigns it to a document type. A page with no keyword hits continues the previous
+     * page's document (multi-page reports); if no page matches at all, the whole document goes to both (one section
+     * shared by both, with no temp file).
+     */
+    private static Split split(SpooledPdf pdf, boolean withPdfs) {
+        try (PDDocument doc = pdf.load()) {
+            int pageCount = doc.getNumberOfPages();
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<String> pageTexts = new ArrayList<>(pageCount);
+            List<FileType> pageTypes = new ArrayList<>(pageCount);
+            FileType previous = null;
+            for (int page = 1; page <= pageCount; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(doc);
+                FileType type = classify(text);
+                if (type == null) type = previous;
+                pageTexts.add(text);
+                pageTypes.add(type);
+                if (type != null) previous = type;
+            }
+            FileType first = pageTypes.stream().filter(t -> t != null).findFirst().orElse(null);
+            if (pageTexts.stream().allMatch(String::isBlank)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No text could be extracted from the PDF (e.g. image-only/scanned document).");
+            }
+            if (first == null) {
+                Section all = section(doc, pageTexts, pageTypes, null, withPdfs);
+                return new Split(all, all);
+            }
+            // Leading pages without keywords belong to the first classified document
+            for (int i = 0; i < pageTypes.size() && pageTypes.get(i) == null; i++) {
+                pageTypes.set(i, first);
+            }
+            Section billOfSale = section(doc, pageTexts, pageTypes, FileType.BILL_OF_SALE, withPdfs);
+            try {
+                return new Split(billOfSale, section(doc, pageTexts, pageTypes, FileType.CONDITION_REPORT, withPdfs));
+            } catch (IOException | RuntimeException e) {
+                deletePdf(billOfSale);
+                throw e;
+            }
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to extract text from PDF", e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not extract text from PDF. The file may be scanned/image-only or corrupted.");
+        }
+    }
+
+    /** Type null selects every page. A section covering every page gets no temp file (see {@link Section}). */
+    private static Section section(PDDocument doc, List<String> pageTexts, List<FileType> pageTypes, FileType type,
+                                   boolean withPdf) throws IOException {
+        List<Integer> pages = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < pageTexts.size(); i++) {
+            if (type == null || pageTypes.get(i) == type) {
+                pages.add(i + 1);
+                text.append(pageTexts.get(i)).append('\n');
+            }
+        }
+        String trimmed = text.toString().trim();
+        if (trimmed.length() > MAX_SECTION_CHARS) {
+            trimmed = trimmed.substring(0, MAX_SECTION_CHARS) + "... [truncated]";
+        }
+        Path pdf = null;
+        if (withPdf && !pages.isEmpty() && pages.size() < pageTexts.size()) {
+            pdf = Files.createTempFile("section-", ".pdf");
+            try (PDDocument part = new PDDocument(IOUtils.createTempFileOnlyStreamCache())) {
+                for (int page : pages) {
+                    part.importPage(doc.getPage(page - 1));
+                }
+                part.save(pdf.toFile());
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(pdf);
+                throw e;
+            }
+        }
+        return new Section(List.copyOf(pages), trimmed, pdf);
+    }
+
+    /** Keyword score per document type; null when the page has no hits or the scores tie. */
+    static FileType classify(String pageText) {
+        if (pageText == null || pageText.isBlank()) return null;
+        String lower = pageText.toLowerCase(Locale.ROOT);
+        int billOfSale = score(lower, BILL_OF_SALE_KEYWORDS);
+        int conditionReport = score(lower, CONDITION_REPORT_KEYWORDS);
+        // The document titles are the strongest signal
+        if (lower.contains("bill of sale")) billOfSale += 5;
+        if (lower.contains("condition report")) conditionReport += 5;
+        if (billOfSale == conditionReport) return null;
+        return billOfSale > conditionReport ? FileType.BILL_OF_SALE : FileType.CONDITION_REPORT;
+    }
+
+    private static int score(String lowerText, List<String> keywords) {
+        int score = 0;
+        for (String keyword : keywords) {
+            if (lowerText.contains(keyword)) score++;
+        }
+        return score;
+    }
+
+    private ExtractionResultCache.Completion callOpenAi(Split split) {
+        String billOfSaleText = split.billOfSale().isEmpty() ? "(no bill of sale pages found)" : split.billOfSale().text();
+        String conditionReportText = split.conditionReport().isEmpty() ? "(no condition report pages found)" : split.conditionReport().text();
+        String prompt = """
+            The following text was extracted from one PDF that may contain a vehicle bill of sale and a vehicle condition report. Return ONLY a valid JSON object with exactly two keys: billOfSale and conditionReport. Set a key to null if that document is not present.
+            billOfSale is an object with exactly these keys (use null for any value not found): vin, make, model, trim, color, purchasePrice, auction, vehicleYear, miles, saleDate, isValidBillOfSale.
+            conditionReport is an object with exactly these keys (use null for any value not found): vin, make, model, trim, color, auction, vehicleYear, miles, isValidConditionReport. Do NOT put purchase price or sale date in conditionReport.
+            For purchasePrice use a number only (no currency symbol or commas). Example: 18500.00.
+            For vehicleYear use a 4-digit number (e.g. 2023).
+            For miles use a number (odometer/mileage, no commas).
+            For saleDate use an ISO date string (YYYY-MM-DD) or the date as written on the document.
+            auction is the auction house or auction name if present.
+            Set isValidBillOfSale to true only if the bill of sale text has a realistic format for a bill of sale (e.g. buyer/seller, vehicle details, price, signatures or formal structure); otherwise false.
+            Set isValidConditionReport to true only if the condition report text has a realistic format for a vehicle condition report (e.g. inspection checklist, condition grades, damage notes, vehicle details); otherwise false.
+            Return nothing else except the JSON object.
+
+            Bill of sale text:
+            %s
+
+            Condition report text:
+            %s
+            """.formatted(billOfSaleText, conditionReportText);
+
+        OpenAiClient.ChatCompletion completion = openAiClient.complete("combined",
+                "You extract structured data from vehicle bill-of-sale and condition report documents. Reply only with valid JSON.",
+                prompt);
+        return new ExtractionResultCache.Completion(completion.content(), completion.totalTokens());
+    }
+
+    private JsonNode parseCombined(String json) {
+        try {
+            if (json.startsWith("```")) {
+                int start = json.indexOf('{');
+                int end = json.lastIndexOf('}') + 1;
+                if (start >= 0 && end > start) {
+                    json = json.substring(start, end);
+                }
+            }
+            JsonNode node = objectMapper.readTree(json);
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("Not a JSON object");
+            }
+            return node;
+        } catch (Exception e) {
+            log.warn("Failed to parse OpenAI JSON: {}", json, e);
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Could not parse extraction result");
+        }
+    }
+
+    /** Streams the section's temp file, or the whole upload when the section covers every page. */
+    private void savePending(String tokenStr, String fileName, FileType fileType, SpooledPdf upload, Section section) {
+        try (InputStream content = section.pdf() != null ? Files.newInputStream(section.pdf()) : upload.openStream()) {
+            long size = section.pdf() != null ? Files.size(section.pdf()) : upload.size();
+            fileMetadataService.savePending(tokenStr, fileName, null, fileType, content, size);
+        } catch (IOException e) {
+            log.warn("Failed to read {} pages for upload", fileType, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Extraction succeeded but failed to save file");
+        }
+    }
+
+    private static void deletePdf(Section section) {
+        if (section.pdf() == null) return;
+        try {
+            Files.deleteIfExists(section.pdf());
+        } catch (IOException e) {
+            log.warn("Failed to delete temp file {}", section.pdf(), e);
+        }
+    }
+}
@@ -14,10 +14,11 @@ import com.stockyourlot.entity.UserCommission;
 import com.stockyourlot.entity.UserCommissionStatus;
 import com.stockyourlot.repository.CommissionRuleRepository;
 import com.stockyourlot.repository.PurchaseCommissionRepository;
-import com.stockyourlot.repository.PurchaseRepository;
 import com.stockyourlot.repository.UserCommissionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,8 +26,13 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -41,17 +47,27 @@ public class CommissionService {
 
     private final CommissionRuleRepository commissionRuleRepository;
     private final UserCommissionRepository userCommissionRepository;
-    private final PurchaseRepository purchaseRepository;
     private final PurchaseCommissionRepository purchaseCommissionRepository;
+    private final DealershipRollupService dealershipRollupService;
+    private final EffectiveRuleIndex<ActiveCommission> ruleIndex;
+
+    /** ACTIVE user commission assignment with its rule terms, as held in the rule index. */
+    public record ActiveCommission(UUID id, UUID ruleId, int level, LocalDate startDate, LocalDate endDate,
+                                   Integer numberOfSales, CommissionType commissionType, BigDecimal amount)
+            implements EffectiveRuleIndex.Assignment {}
 
     public CommissionService(CommissionRuleRepository commissionRuleRepository,
                              UserCommissionRepository userCommissionRepository,
-                             PurchaseRepository purchaseRepository,
-                             PurchaseCommissionRepository purchaseCommissionRepository) {
+                             PurchaseCommissionRepository purchaseCommissionRepository,
+                             DealershipRollupService dealershipRollupService,
+                             @Value("${app.rules.index.max-owners:10000}") long indexMaxOwners,
+                             @Value("${app.rules.index.ttl-seconds:300}") long indexTtlSeconds,
+                             MeterRegistry meterRegistry) {
         this.commissionRuleRepository = commissionRuleRepository;
         this.userCommissionRepository = userCommissionRepository;
-        this.purchaseRepository = purchaseRepository;
         this.purchaseCommissionRepository = purchaseCommissionRepository;
+        this.dealershipRollupService = dealershipRollupService;
+        this.ruleIndex = new EffectiveRuleIndex<>("commission", indexMaxOwners, Duration.ofSeconds(indexTtlSeconds), meterRegistry);
     }
 
     @Transactional(readOnly = true)
@@ -79,6 +95,7 @@ public class CommissionService {
         if (request.amount() != null) rule.setAmount(request.amount());
         if (request.commissionType() != null) rule.setCommissionType(request.commissionType());
         rule = commissionRuleRepository.save(rule);
+        ruleIndex.invalidateAll();
         return new CommissionRuleResponse(rule.getId(), rule.getRuleName(), rule.getAmount(), rule.getCommissionType());
     }
 
@@ -88,6 +105,7 @@ public class CommissionService {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Commission rule not found: " + id);
         }
         commissionRuleRepository.deleteById(id);
+        ruleIndex.invalidateAll();
     }
 
     /**
@@ -96,6 +114,8 @@ public class CommissionService {
      */
     @Transactional
     public Optional<String> assignUserCommissionRules(User user, List<UserCommissionRuleInput> inputs) {
+        // Callers may have just deleted the user's assignments, so invalidate even when nothing is added
+        ruleIndex.invalidate(user.getId());
         if (inputs == null || inputs.isEmpty()) {
             return Optional.empty();
         }
@@ -117,6 +137,7 @@ public class CommissionService {
             uc.setNumberOfSales(input.numberOfSales());
             userCommissionRepository.save(uc);
         }
+        userCommissionRepository.recomputeSalesCounts(user.getId());
         return Optional.empty();
     }
 
@@ -140,7 +161,10 @@ public class CommissionService {
         uc.setEndDate(input.endDate());
         uc.setLevel(level);
         uc.setNumberOfSales(input.numberOfSales());
-        return userCommissionRepository.save(uc);
+        ruleIndex.invalidate(user.getId());
+        uc = userCommissionRepository.save(uc);
+        userCommissionRepository.recomputeSalesCounts(user.getId());
+        return uc;
     }
 
     /**
@@ -154,7 +178,12 @@ public class CommissionService {
         if (request.endDate() != null) uc.setEndDate(request.endDate());
         if (request.level() != null && request.level() >= 0) uc.setLevel(request.level());
         if (request.numberOfSales() != null) uc.setNumberOfSales(request.numberOfSales());
-        return userCommissionRepository.save(uc);
+        ruleIndex.invalidate(userId);
+        uc = userCommissionRepository.save(uc);
+        if (request.startDate() != null) {
+            userCommissionRepository.recomputeSalesCounts(userId);
+        }
+        return uc;
     }
 
     /**
@@ -165,19 +194,24 @@ public class CommissionService {
         UserCommission uc = userCommissionRepository.findByUser_IdAndId(userId, commissionId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User commission not found: " + commissionId));
         userCommissionRepository.delete(uc);
+        ruleIndex.invalidate(userId);
     }
 
     /**
-     * Returns the single effective commission rule for a user on a given date:
-     * active, within start/end range, highest level. Empty if none.
+     * Returns the single effective commission assignment for a user on a given date:
+     * active, within start/end range, highest level. Empty if none. Served from the rule index.
      */
     @Transactional(readOnly = true)
-    public Optional<UserCommission> getEffectiveRuleForUser(UUID userId, LocalDate asOfDate) {
-        List<UserCommission> active = userCommissionRepository.findByUser_IdAndStatusWithRuleOrderByLevelDesc(userId, UserCommissionStatus.ACTIVE);
-        return active.stream()
-                .filter(uc -> !asOfDate.isBefore(uc.getStartDate()))
-                .filter(uc -> uc.getEndDate() == null || !asOfDate.isAfter(uc.getEndDate()))
-                .findFirst();
+    public Optional<ActiveCommission> getEffectiveRuleForUser(UUID userId, LocalDate asOfDate) {
+        return ruleIndex.effective(userId, asOfDate, this::loadActive);
+    }
+
+    private List<ActiveCommission> loadActive(UUID userId) {
+        return userCommissionRepository.findByUser_IdAndStatusWithRuleOrderByLevelDesc(userId, UserCommissionStatus.ACTIVE)
+                .stream()
+                .map(uc -> new ActiveCommission(uc.getId(), uc.getRule().getId(), uc.getLevel(), uc.getStartDate(),
+                        uc.getEndDate(), uc.getNumberOfSales(), uc.getRule().getCommissionType(), uc.getRule().getAmount()))
+                .toList();
     }
 
     /**
@@ -190,21 +224,57 @@ public class CommissionService {
     public void recordCommissionsForPurchase(Purchase purchase) {
         UUID buyerId = purchase.getBuyer().getId();
         LocalDate purchaseDate = purchase.getPurchaseDate();
-        Optional<UserCommission> effective = getEffectiveRuleForUser(buyerId, purchaseDate);
+        Optional<ActiveCommission> effective = getEffectiveRuleForUser(buyerId, purchaseDate);
         if (effective.isEmpty()) {
             log.debug("No effective commission rule for buyer {} on purchase date {}; ensure user has an ACTIVE assignment with startDate <= {} and (endDate null or >= {})",
                     buyerId, purchaseDate, purchaseDate, purchaseDate);
         }
-        effective.ifPresent(uc -> {
-            BigDecimal amount = computeCommissionAmount(uc.getRule().getCommissionType(),
-                    uc.getRule().getAmount(), purchase.getPurchasePrice());
+        effective.ifPresent(ac -> {
+            BigDecimal amount = computeCommissionAmount(ac.commissionType(), ac.amount(), purchase.getPurchasePrice());
             PurchaseCommission pc = new PurchaseCommission(
-                    purchase, purchase.getBuyer(), uc.getRule(), amount);
+                    purchase, purchase.getBuyer(), commissionRuleRepository.getReferenceById(ac.ruleId()), amount);
             purchaseCommissionRepository.save(pc);
+            dealershipRollupService.recordCommissions(List.of(pc));
         });
     }
 
-    private static BigDecimal computeCommissionAmount(CommissionType type, BigDecimal ruleAmount, BigDecimal purchasePrice) {
+    /**
+     * Bulk counterpart of recordCommissionsForPurchase followed by expireUserCommissionRulesIfApplicable, for one
+     * buyer's already persisted purchases in creation order. Active assignments are loaded once and counted/expired
+     * in memory between rows, so each purchase gets the rule it would have got if created alone; the counters and
+     * expiry are then written with one recount and one expiry update.
+     */
+    @Transactional
+    public void recordCommissionsForPurchases(UUID buyerId, List<Purchase> purchases) {
+        if (purchases.isEmpty()) return;
+        List<UserCommission> active = new ArrayList<>(
+                userCommissionRepository.findByUser_IdAndStatusWithRuleOrderByLevelDesc(buyerId, UserCommissionStatus.ACTIVE));
+        Map<UUID, Integer> salesCounts = new HashMap<>();
+        active.forEach(uc -> salesCounts.put(uc.getId(), uc.getSalesCount()));
+        List<PurchaseCommission> commissions = new ArrayList<>();
+        LocalDate latest = null;
+        for (Purchase purchase : purchases) {
+            LocalDate date = purchase.getPurchaseDate();
+            active.stream()
+                    .filter(uc -> !date.isBefore(uc.getStartDate()) && (uc.getEndDate() == null || !date.isAfter(uc.getEndDate())))
+                    .findFirst()
+                    .ifPresent(uc -> commissions.add(new PurchaseCommission(purchase, purchase.getBuyer(), uc.getRule(),
+                            computeCommissionAmount(uc.getRule().getCommissionType(), uc.getRule().getAmount(), purchase.getPurchasePrice()))));
+            active.stream()
+                    .filter(uc -> !uc.getStartDate().isAfter(date))
+                    .forEach(uc -> salesCounts.merge(uc.getId(), 1, Integer::sum));
+            active.removeIf(uc -> (uc.getEndDate() != null && uc.getEndDate().isBefore(date))
+                    || (uc.getNumberOfSales() != null && salesCounts.get(uc.getId()) >= uc.getNumberOfSales()));
+            if (latest == null || date.isAfter(latest)) latest = date;
+        }
+        purchaseCommissionRepository.saveAll(commissions);
+        dealershipRollupService.recordCommissions(commissions);
+        userCommissionRepository.recomputeSalesCounts(buyerId);
+        userCommissionRepository.expireReached(buyerId, latest, Instant.now());
+        ruleIndex.invalidate(buyerId);
+    }
+
+    static BigDecimal computeCommissionAmount(CommissionType type, BigDecimal ruleAmount, BigDecimal purchasePrice) {
         if (type == CommissionType.FLAT) {
             return ruleAmount != null ? ruleAmount : BigDecimal.ZERO;
         }
@@ -214,28 +284,24 @@ public class CommissionService {
     }
 
     /**
-     * Call after a purchase is created. Expires user commission assignments for the buyer when applicable:
-     * (1) if purchase date is after end_date, set status to EXPIRED;
-     * (2) if number_of_sales is set and count of buyer's sales from start_date through purchase date >= number_of_sales, set status to EXPIRED.
+     * Call once after a purchase is created (after recordCommissionsForPurchase). Counts the sale on the buyer's
+     * active assignments that had started by the purchase date, then expires assignments when applicable:
+     * (1) purchase date is after end_date, or (2) number_of_sales is set and the sales counter has reached it.
      */
     @Transactional
     public void expireUserCommissionRulesIfApplicable(UUID buyerId, LocalDate purchaseDate) {
-        List<UserCommission> active = userCommissionRepository.findByUser_IdAndStatusOrderByLevelDesc(buyerId, UserCommissionStatus.ACTIVE);
-        for (UserCommission uc : active) {
-            boolean expired = false;
-            if (uc.getEndDate() != null && purchaseDate.isAfter(uc.getEndDate())) {
-                expired = true;
-            } else if (uc.getNumberOfSales() != null) {
-                long count = purchaseRepository.countByBuyer_IdAndPurchaseDateBetween(
-                        buyerId, uc.getStartDate(), purchaseDate);
-                if (count >= uc.getNumberOfSales()) {
-                    expired = true;
-                }
-            }
-            if (expired) {
-                uc.setStatus(UserCommissionStatus.EXPIRED);
-                userCommissionRepository.save(uc);
-            }
+        userCommissionRepository.incrementSalesCount(buyerId, purchaseDate);
+        if (userCommissionRepository.expireReached(buyerId, purchaseDate, Instant.now()) > 0) {
+            ruleIndex.invalidate(buyerId);
         }
     }
+
+    /**
+     * Recounts the sales counters of the user's active assignments from purchase history. Call when a purchase's
+     * date or buyer changes, or when an assignment's start date changes.
+     */
+    @Transactional
+    public void recomputeSalesCounts(UUID userId) {
+        userCommissionRepository.recomputeSalesCounts(userId);
+    }
 }
@@ -0,0 +1,143 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.entity.DealershipMonthlyRollup;
+import com.stockyourlot.entity.Purchase;
+import com.stockyourlot.entity.PurchaseCommission;
+import com.stockyourlot.entity.PurchasePremium;
+import com.stockyourlot.repository.DealershipMonthlyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains dealership_monthly_rollup: purchase count and price by the purchase's dealership, service fees by the
+ * premium's dealership, commissions by the purchase's dealership, all in the month of the purchase date. New rows
+ * add deltas in the caller's transaction; purchase edits that move a purchase recompute the affected cells; a
+ * nightly rebuild reconciles anything else (deleted users or dealerships, manual SQL).
+ */
+@Service
+public class DealershipRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(DealershipRollupService.class);
+
+    /** Rollup row key: dealership and first day of the month. */
+    private record Cell(UUID dealershipId, LocalDate monthStart) {
+        static Cell of(UUID dealershipId, LocalDate date) {
+            return dealershipId == null || date == null ? null : new Cell(dealershipId, date.withDayOfMonth(1));
+        }
+    }
+
+    private record Delta(long purchases, BigDecimal price, BigDecimal serviceFees, BigDecimal commissions) {
+        Delta plus(Delta other) {
+            return new Delta(purchases + other.purchases, price.add(other.price),
+                    serviceFees.add(other.serviceFees), commissions.add(other.commissions));
+        }
+    }
+
+    private final DealershipMonthlyRollupRepository rollupRepository;
+
+    public DealershipRollupService(DealershipMonthlyRollupRepository rollupRepository) {
+        this.rollupRepository = rollupRepository;
+    }
+
+    @Transactional
+    public void recordPurchases(Collection<Purchase> purchases) {
+        apply(purchases.stream().collect(Collectors.toMap(
+                p -> Cell.of(dealershipIdOf(p), p.getPurchaseDate()),
+                p -> new Delta(1, orZero(p.getPurchasePrice()), BigDecimal.ZERO, BigDecimal.ZERO),
+                Delta::plus, LinkedHashMap::new)));
+    }
+
+    @Transactional
+    public void recordServiceFees(Collection<PurchasePremium> premiums) {
+        apply(premiums.stream().collect(Collectors.toMap(
+                pp -> Cell.of(pp.getDealership().getId(), pp.getPurchase().getPurchaseDate()),
+                pp -> new Delta(0, BigDecimal.ZERO, orZero(pp.getAmount()), BigDecimal.ZERO),
+                Delta::plus, LinkedHashMap::new)));
+    }
+
+    @Transactional
+    public void recordCommissions(Collection<PurchaseCommission> commissions) {
+        apply(commissions.stream().collect(Collectors.toMap(
+                pc -> Cell.of(dealershipIdOf(pc.getPurchase()), pc.getPurchase().getPurchaseDate()),
+                pc -> new Delta(0, BigDecimal.ZERO, BigDecimal.ZERO, orZero(pc.getAmount())),
+                Delta::plus, LinkedHashMap::new)));
+    }
+
+    /**
+     * Recomputes the cells a purchase left and entered after its date, dealership or price changed. Pending
+     * changes are flushed first so the recount sees them.
+     */
+    @Transactional
+    public void purchaseMoved(UUID previousDealershipId, LocalDate previousDate, Purchase purchase) {
+        Cell before = Cell.of(previousDealershipId, previousDate);
+        Cell after = Cell.of(dealershipIdOf(purchase), purchase.getPurchaseDate());
+        if (before != null) refresh(before);
+        if (after != null && !after.equals(before)) refresh(after);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<UUID, Long> purchaseCounts(Collection<UUID> dealershipIds) {
+        if (dealershipIds.isEmpty()) return Map.of();
+        return rollupRepository.sumPurchaseCountByDealershipIds(dealershipIds).stream()
+                .collect(Collectors.toMap(row -> (UUID) row[0], row -> ((Number) row[1]).longValue()));
+    }
+
+    @Transactional(readOnly = true)
+    public long purchaseCount(UUID dealershipId) {
+        return rollupRepository.sumPurchaseCountByDealershipId(dealershipId);
+    }
+
+    @Transactional(readOnly = true)
+    public long purchaseCount(UUID dealershipId, YearMonth month) {
+        return rollupRepository.findByDealershipIdAndMonthStart(dealershipId, month.atDay(1))
+                .map(DealershipMonthlyRollup::getPurchaseCount)
+                .orElse(0L);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalServiceFees(UUID dealershipId) {
+        return orZero(rollupRepository.sumServiceFeesByDealershipId(dealershipId));
+    }
+
+    /** Rebuilds every row from purchase history; incremental writers wait on the table lock meanwhile. */
+    @Scheduled(cron = "${app.rollup.rebuild-cron:0 15 3 * * *}")
+    @Transactional
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        rollupRepository.lockForRebuild();
+        rollupRepository.deleteAllRows();
+        int rows = rollupRepository.insertFromHistory();
+        log.info("Rebuilt dealership monthly rollup: {} rows in {} ms", rows, System.currentTimeMillis() - start);
+    }
+
+    private void refresh(Cell cell) {
+        rollupRepository.refresh(cell.dealershipId(), cell.monthStart(), cell.monthStart().plusMonths(1));
+    }
+
+    private void apply(Map<Cell, Delta> deltas) {
+        deltas.forEach((cell, d) -> {
+            if (cell == null) return;
+            rollupRepository.add(cell.dealershipId(), cell.monthStart(), d.purchases(), d.price(), d.serviceFees(), d.commissions());
+        });
+    }
+
+    private static UUID dealershipIdOf(Purchase p) {
+        return p.getDealership() != null ? p.getDealership().getId() : null;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -15,8 +15,6 @@ import com.stockyourlot.entity.DealershipUser;
 import com.stockyourlot.repository.DealerPremiumRepository;
 import com.stockyourlot.repository.DealershipRepository;
 import com.stockyourlot.repository.DealershipUserRepository;
-import com.stockyourlot.repository.PurchasePremiumRepository;
-import com.stockyourlot.repository.PurchaseRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,23 +32,21 @@ import java.util.stream.Collectors;
 public class DealershipService {
 
     private final DealershipRepository dealershipRepository;
-    private final PurchaseRepository purchaseRepository;
-    private final PurchasePremiumRepository purchasePremiumRepository;
     private final DealerPremiumRepository dealerPremiumRepository;
     private final DealershipUserRepository dealershipUserRepository;
     private final PremiumService premiumService;
+    private final DealershipRollupService dealershipRollupService;
 
-    public DealershipService(DealershipRepository dealershipRepository, PurchaseRepository purchaseRepository,
-                             PurchasePremiumRepository purchasePremiumRepository,
+    public DealershipService(DealershipRepository dealershipRepository,
                              DealerPremiumRepository dealerPremiumRepository,
                              DealershipUserRepository dealershipUserRepository,
-                             PremiumService premiumService) {
+                             PremiumService premiumService,
+                             DealershipRollupService dealershipRollupService) {
         this.dealershipRepository = dealershipRepository;
-        this.purchaseRepository = purchaseRepository;
-        this.purchasePremiumRepository = purchasePremiumRepository;
         this.dealerPremiumRepository = dealerPremiumRepository;
         this.dealershipUserRepository = dealershipUserRepository;
         this.premiumService = premiumService;
+        this.dealershipRollupService = dealershipRollupService;
     }
 
     @Transactional
@@ -74,7 +70,7 @@ public class DealershipService {
     public DealershipResponse getById(UUID id) {
         Dealership dealership = dealershipRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dealership not found: " + id));
-        long purchaseCount = purchaseRepository.countByDealership_Id(id);
+        long purchaseCount = dealershipRollupService.purchaseCount(id);
         List<DealerPremiumAssignmentDto> premiumDtos = dealerPremiumRepository.findByDealership_IdWithRuleOrderByLevelDesc(id)
                 .stream()
                 .map(this::toDealerPremiumAssignmentDto)
@@ -86,11 +82,8 @@ public class DealershipService {
     public DealershipPremiumSummaryDto getPremiumSummary(UUID dealershipId) {
         dealershipRepository.findById(dealershipId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dealership not found: " + dealershipId));
-        YearMonth currentMonth = YearMonth.now();
-        long purchasesThisMonth = purchaseRepository.countByDealership_IdAndPurchaseDateBetween(
-                dealershipId, currentMonth.atDay(1), currentMonth.atEndOfMonth());
-        BigDecimal totalPremiums = purchasePremiumRepository.sumAmountByDealership_Id(dealershipId);
-        if (totalPremiums == null) totalPremiums = BigDecimal.ZERO;
+        long purchasesThisMonth = dealershipRollupService.purchaseCount(dealershipId, YearMonth.now());
+        BigDecimal totalPremiums = dealershipRollupService.totalServiceFees(dealershipId);
         return new DealershipPremiumSummaryDto(purchasesThisMonth, totalPremiums, totalPremiums);
     }
 
@@ -185,8 +178,7 @@ public class DealershipService {
         List<Dealership> list = dealershipRepository.findAll();
         if (list.isEmpty()) return List.of();
         List<UUID> ids = list.stream().map(Dealership::getId).toList();
-        Map<UUID, Long> counts = purchaseRepository.countByDealershipIds(ids).stream()
-                .collect(Collectors.toMap(row -> (UUID) row[0], row -> (Long) row[1]));
+        Map<UUID, Long> counts = dealershipRollupService.purchaseCounts(ids);
         List<DealerPremium> activePremiums = dealerPremiumRepository.findByDealership_IdInAndStatusWithRuleOrderByLevelDesc(
                 ids, com.stockyourlot.entity.DealerPremiumStatus.ACTIVE);
         Map<UUID, List<DealerPremiumAssignmentDto>> premiumsByDealership = activePremiums.stream()
@@ -0,0 +1,105 @@
+package com.stockyourlot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * In-process index of ACTIVE rule assignments per owner (user or dealership), held as immutable snapshots sorted by
+ * level descending so the effective rule for a date is the first whose [startDate, endDate] contains it.
+ * Owners load lazily; the owning service invalidates an owner on every assignment change and everything on rule
+ * changes. Entries also expire after a short TTL, which bounds staleness from writes made by other instances.
+ * <p>
+ * Metrics (tag kind): rules.resolve timer, rules.index.loads counter, plus cache.* (cache=&lt;kind&gt;RuleIndex).
+ */
+final class EffectiveRuleIndex<A extends EffectiveRuleIndex.Assignment> {
+
+    /** Snapshot of one ACTIVE assignment. */
+    interface Assignment {
+        UUID id();
+        UUID ruleId();
+        int level();
+        LocalDate startDate();
+        LocalDate endDate();
+        Integer numberOfSales();
+
+        default boolean covers(LocalDate date) {
+            return !date.isBefore(startDate()) && (endDate() == null || !date.isAfter(endDate()));
+        }
+    }
+
+    private final Cache<UUID, List<A>> byOwner;
+    private final Timer resolveTimer;
+    private final Counter loads;
+
+    EffectiveRuleIndex(String kind, long maxOwners, Duration ttl, MeterRegistry meterRegistry) {
+        this.byOwner = Caffeine.newBuilder()
+                .maximumSize(maxOwners)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byOwner, kind + "RuleIndex");
+        this.resolveTimer = Timer.builder("rules.resolve")
+                .description("Effective rule lookup for one owner and date")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        this.loads = Counter.builder("rules.index.loads")
+                .description("Owners loaded from the database on an index miss")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    /** ACTIVE assignments for the owner, highest level first; the loader runs only on a miss. */
+    List<A> active(UUID ownerId, Function<UUID, List<A>> loader) {
+        return byOwner.get(ownerId, id -> {
+            loads.increment();
+            return loader.apply(id).stream()
+                    .sorted(Comparator.comparingInt(Assignment::level).reversed())
+                    .toList();
+        });
+    }
+
+    /** Highest-level ACTIVE assignment covering the date. */
+    Optional<A> effective(UUID ownerId, LocalDate date, Function<UUID, List<A>> loader) {
+        return resolveTimer.record(() -> active(ownerId, loader).stream().filter(a -> a.covers(date)).findFirst());
+    }
+
+    /**
+     * Drops the owner now and again after the surrounding transaction commits, so a concurrent reload of
+     * pre-commit state cannot linger.
+     */
+    void invalidate(UUID ownerId) {
+        if (ownerId == null) return;
+        byOwner.invalidate(ownerId);
+        afterCommit(() -> byOwner.invalidate(ownerId));
+    }
+
+    void invalidateAll() {
+        byOwner.invalidateAll();
+        afterCommit(byOwner::invalidateAll);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.stockyourlot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockyourlot.dto.ExtractionJobResponse;
+import com.stockyourlot.entity.ExtractionJob;
+import com.stockyourlot.entity.ExtractionJobPayload;
+import com.stockyourlot.entity.ExtractionJobStatus;
+import com.stockyourlot.entity.FileType;
+import com.stockyourlot.repository.ExtractionJobPayloadRepository;
+import com.stockyourlot.repository.ExtractionJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Asynchronous bill-of-sale / condition-report extraction. Submitting persists the job and its PDF, then hands it
+ * to a bounded worker pool; when the pool and its queue are full the submit is rejected with 503 so callers back off.
+ * Workers claim jobs atomically in the DB, so after a restart (or on another pod) the scheduled sweep can safely
+ * re-run QUEUED jobs and RUNNING jobs whose worker went away. Clients poll {@link #getJob} or subscribe over SSE.
+ */
+@Service
+public class ExtractionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionJobService.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long SSE_TIMEOUT_MS = 5 * 60 * 1000L;
+    private static final Set<ExtractionJobStatus> FINISHED = EnumSet.of(ExtractionJobStatus.SUCCEEDED, ExtractionJobStatus.FAILED);
+
+    private final ExtractionJobRepository extractionJobRepository;
+    private final ExtractionJobPayloadRepository extractionJobPayloadRepository;
+    private final BillOfSaleExtractionService billOfSaleExtractionService;
+    private final ConditionReportExtractionService conditionReportExtractionService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration staleAfter;
+    private final Duration retention;
+
+    /** Jobs handed to this pod's executor and not yet finished; the sweep skips them. */
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public ExtractionJobService(ExtractionJobRepository extractionJobRepository,
+                                ExtractionJobPayloadRepository extractionJobPayloadRepository,
+                                BillOfSaleExtractionService billOfSaleExtractionService,
+                                ConditionReportExtractionService conditionReportExtractionService,
+                                ObjectMapper objectMapper,
+                                @Value("${app.extraction.jobs.workers:4}") int workers,
+                                @Value("${app.extraction.jobs.queue-capacity:20}") int queueCapacity,
+                                @Value("${app.extraction.jobs.stale-after-seconds:300}") long staleAfterSeconds,
+                                @Value("${app.extraction.jobs.retention-hours:24}") long retentionHours,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.extractionJobRepository = extractionJobRepository;
+        this.extractionJobPayloadRepository = extractionJobPayloadRepository;
+        this.billOfSaleExtractionService = billOfSaleExtractionService;
+        this.conditionReportExtractionService = conditionReportExtractionService;
+        this.objectMapper = objectMapper;
+        this.staleAfter = Duration.ofSeconds(staleAfterSeconds);
+        this.retention = Duration.ofHours(retentionHours);
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("extraction-");
+        // Still at most `workers` jobs at once (OpenAI rate limits), but a worker blocked on I/O frees its carrier
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Unfinished jobs stay QUEUED/RUNNING in the DB and are picked up again after restart.
+        executor.shutdown();
+    }
+
+    /**
+     * Validates the upload, persists a QUEUED job with the PDF owned by submittedBy and queues it for a worker.
+     * @throws ResponseStatusException 400 for an invalid upload, 503 if the worker pool is saturated
+     */
+    public ExtractionJobResponse submit(FileType documentType, MultipartFile file, UUID uploadToken, UUID submittedBy) {
+        if (documentType == FileType.BILL_OF_SALE) {
+            billOfSaleExtractionService.validateUpload(file);
+        } else if (documentType == FileType.CONDITION_REPORT) {
+            conditionReportExtractionService.validateUpload(file);
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported document type: " + documentType);
+        }
+        if (!hasCapacity()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Extraction queue is full; retry shortly");
+        }
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read uploaded file");
+        }
+        ExtractionJob job = extractionJobRepository.save(new ExtractionJob(
+                documentType, uploadToken != null ? uploadToken.toString() : null, file.getOriginalFilename(), submittedBy));
+        extractionJobPayloadRepository.save(new ExtractionJobPayload(job.getId(), content));
+        if (!enqueue(job.getId())) {
+            extractionJobRepository.deleteById(job.getId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Extraction queue is full; retry shortly");
+        }
+        return toResponse(job);
+    }
+
+    /**
+     * @throws ResponseStatusException 404 if the job does not exist (or was cleaned up after the retention period)
+     *         or was submitted by another user
+     */
+    public ExtractionJobResponse getJob(UUID id, UUID userId) {
+        return extractionJobRepository.findById(id)
+                .filter(job -> userId.equals(job.getSubmittedBy()))
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Extraction job not found: " + id));
+    }
+
+    /**
+     * SSE stream that emits one "job" event with the final ExtractionJobResponse, then completes.
+     * If the job has already finished the event is sent immediately.
+     */
+    public SseEmitter subscribe(UUID id, UUID userId) {
+        ExtractionJobResponse current = getJob(id, userId);
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        if (current.status().isFinished()) {
+            send(emitter, current);
+            return emitter;
+        }
+        List<SseEmitter> list = subscribers.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        Runnable remove = () -> list.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        // The job may have finished between the read above and registering.
+        extractionJobRepository.findById(id).filter(j -> j.getStatus().isFinished()).ifPresent(this::notifySubscribers);
+        return emitter;
+    }
+
+    /**
+     * Recovers work after a restart or from other pods: re-queues stale RUNNING jobs, submits QUEUED jobs not already
+     * in this pod's executor (up to free capacity) and deletes finished jobs past the retention period.
+     */
+    @Scheduled(fixedDelayString = "${app.extraction.jobs.sweep-interval-ms:30000}",
+            initialDelayString = "${app.extraction.jobs.sweep-interval-ms:30000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        Instant staleBefore = now.minus(staleAfter);
+        int requeued = extractionJobRepository.requeueStale(staleBefore, MAX_ATTEMPTS, now);
+        int failed = extractionJobRepository.failStale(staleBefore, MAX_ATTEMPTS, now);
+        if (requeued > 0 || failed > 0) {
+            log.warn("Extraction sweep: requeued {} stale job(s), failed {} job(s) out of attempts", requeued, failed);
+        }
+        int free = freeCapacity();
+        if (free > 0) {
+            List<UUID> queued = extractionJobRepository.findIdsByStatusOrderByCreatedAtAsc(
+                    ExtractionJobStatus.QUEUED, PageRequest.of(0, free + inFlight.size()));
+            for (UUID id : queued) {
+                if (inFlight.contains(id)) continue;
+                if (!enqueue(id)) break;
+            }
+        }
+        int deleted = extractionJobRepository.deleteFinishedBefore(now.minus(retention));
+        if (deleted > 0) {
+            log.debug("Extraction sweep: deleted {} finished job(s) older than {}", deleted, retention);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeAfterStartup() {
+        sweep();
+    }
+
+    /**
+     * Pushes results for subscribed jobs that finished on another pod (local completions notify directly).
+     */
+    @Scheduled(fixedDelay = 2000)
+    public void pushFinishedToSubscribers() {
+        if (subscribers.isEmpty()) return;
+        extractionJobRepository.findByIdInAndStatusIn(subscribers.keySet(), FINISHED)
+                .forEach(this::notifySubscribers);
+    }
+
+    private boolean hasCapacity() {
+        return freeCapacity() > 0;
+    }
+
+    private int freeCapacity() {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        int idleWorkers = Math.max(pool.getMaximumPoolSize() - pool.getActiveCount(), 0);
+        return pool.getQueue().remainingCapacity() + idleWorkers;
+    }
+
+    private boolean enqueue(UUID id) {
+        if (!inFlight.add(id)) return true;
+        try {
+            executor.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    inFlight.remove(id);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            inFlight.remove(id);
+            return false;
+        }
+    }
+
+    private void run(UUID id) {
+        if (extractionJobRepository.claim(id, Instant.now()) == 0) {
+            return;
+        }
+        ExtractionJob job = extractionJobRepository.findById(id).orElse(null);
+        if (job == null) return;
+        try {
+            byte[] content = extractionJobPayloadRepository.findById(id)
+                    .map(ExtractionJobPayload::getContent)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.GONE, "Uploaded file is no longer available"));
+            UUID uploadToken = job.getUploadToken() != null ? UUID.fromString(job.getUploadToken()) : null;
+            Object result = job.getDocumentType() == FileType.BILL_OF_SALE
+                    ? billOfSaleExtractionService.extractFromPdf(content, job.getFileName(), uploadToken)
+                    : conditionReportExtractionService.extractFromPdf(content, job.getFileName(), uploadToken);
+            job.setResultJson(objectMapper.writeValueAsString(result));
+            job.setStatus(ExtractionJobStatus.SUCCEEDED);
+        } catch (ResponseStatusException e) {
+            job.setStatus(ExtractionJobStatus.FAILED);
+            job.setErrorStatus(e.getStatusCode().value());
+            job.setErrorMessage(truncate(e.getReason()));
+        } catch (Exception e) {
+            log.error("Extraction job {} failed", id, e);
+            job.setStatus(ExtractionJobStatus.FAILED);
+            job.setErrorStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            job.setErrorMessage(truncate(e.getMessage()));
+        }
+        job.setCompletedAt(Instant.now());
+        job = extractionJobRepository.save(job);
+        extractionJobPayloadRepository.deleteById(id);
+        notifySubscribers(job);
+    }
+
+    private void notifySubscribers(ExtractionJob job) {
+        List<SseEmitter> list = subscribers.remove(job.getId());
+        if (list == null) return;
+        ExtractionJobResponse response = toResponse(job);
+        list.forEach(emitter -> send(emitter, response));
+    }
+
+    private static void send(SseEmitter emitter, ExtractionJobResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("job").data(response));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) return null;
+        return message.length() <= 1000 ? message : message.substring(0, 997) + "...";
+    }
+
+    private ExtractionJobResponse toResponse(ExtractionJob job) {
+        return new ExtractionJobResponse(
+                job.getId(),
+                job.getDocumentType(),
+                job.getStatus(),
+                job.getResultJson(),
+                job.getErrorStatus(),
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getCompletedAt());
+    }
+}
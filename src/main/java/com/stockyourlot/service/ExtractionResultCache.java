@@ -0,0 +1,188 @@
+package com.stockyourlot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stockyourlot.entity.ExtractionResult;
+import com.stockyourlot.entity.ExtractionDocumentType;
+import com.stockyourlot.repository.ExtractionResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier cache of LLM extraction output keyed by document type, model, prompt version and the SHA-256 of the PDF
+ * bytes: a size-bounded in-memory tier in front of the extraction_results table. A re-uploaded document returns the
+ * stored completion without PDFBox or OpenAI. Bump the caller's prompt version whenever the prompt or text
+ * preprocessing changes so old entries stop matching.
+ * <p>
+ * Hits in either tier count as use for the retention purge: database hits update last_hit_at immediately, memory
+ * hits are counted per key and written in one batch every app.extraction.cache.hit-flush-interval-ms, so an entry
+ * that stays hot in memory is not purged from the table.
+ * <p>
+ * Metrics: extraction.cache.lookups (tags document, result=memory|database|miss), extraction.cache.tokens.saved
+ * (tag document), extraction.cache.hit.ratio, plus cache.* for the memory tier (cache=extractionResult).
+ */
+@Component
+public class ExtractionResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionResultCache.class);
+
+    /** Raw completion content and the total tokens the original OpenAI call used. */
+    public record Completion(String content, int totalTokens) {}
+
+    private final ExtractionResultRepository extractionResultRepository;
+    private final Cache<String, Completion> memory;
+    private final boolean persistent;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    /** Memory-tier hits per key not yet written to extraction_results. */
+    private final ConcurrentHashMap<String, LongAdder> pendingMemoryHits = new ConcurrentHashMap<>();
+
+    public ExtractionResultCache(ExtractionResultRepository extractionResultRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.extraction.cache.max-size:1000}") long maxSize,
+                                 @Value("${app.extraction.cache.persistent:true}") boolean persistent,
+                                 @Value("${app.extraction.cache.retention-days:90}") long retentionDays) {
+        this.extractionResultRepository = extractionResultRepository;
+        this.meterRegistry = meterRegistry;
+        this.persistent = persistent;
+        this.retention = Duration.ofDays(retentionDays);
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "extractionResult");
+        Gauge.builder("extraction.cache.hit.ratio", this, ExtractionResultCache::hitRatio)
+                .description("Share of extraction lookups served from either cache tier since startup")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Looks up the memory tier, then the database (promoting a database hit into memory).
+     * Database errors are logged and treated as a miss so extraction still works without the cache.
+     */
+    public Optional<Completion> get(ExtractionDocumentType documentType, String model, String promptVersion, String contentSha256) {
+        String key = key(documentType, model, promptVersion, contentSha256);
+        lookups.incrementAndGet();
+        Completion cached = memory.getIfPresent(key);
+        if (cached != null) {
+            recordHit(documentType, "memory", cached);
+            if (persistent) {
+                pendingMemoryHits.computeIfAbsent(key, k -> new LongAdder()).increment();
+            }
+            return Optional.of(cached);
+        }
+        if (persistent) {
+            try {
+                Optional<ExtractionResult> stored = extractionResultRepository.findById(key);
+                if (stored.isPresent()) {
+                    Completion completion = new Completion(stored.get().getResultJson(), stored.get().getTotalTokens());
+                    memory.put(key, completion);
+                    extractionResultRepository.recordHits(key, 1, Instant.now());
+                    recordHit(documentType, "database", completion);
+                    return Optional.of(completion);
+                }
+            } catch (Exception e) {
+                log.warn("Extraction cache lookup failed for key={}", key, e);
+            }
+        }
+        lookupCounter(documentType, "miss").increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores a completion that parsed successfully. A concurrent insert of the same key is harmless and ignored.
+     */
+    public void put(ExtractionDocumentType documentType, String model, String promptVersion, String contentSha256, Completion completion) {
+        String key = key(documentType, model, promptVersion, contentSha256);
+        memory.put(key, completion);
+        if (!persistent) return;
+        try {
+            if (!extractionResultRepository.existsById(key)) {
+                extractionResultRepository.save(new ExtractionResult(key, documentType, model, promptVersion,
+                        contentSha256, completion.content(), completion.totalTokens()));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to persist extraction cache entry key={}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes memory-tier hits to last_hit_at / hit_count, one UPDATE per key hit since the last flush. A hit
+     * counted concurrently with its key's flush may be dropped; that only understates hit_count.
+     */
+    @Scheduled(fixedDelayString = "${app.extraction.cache.hit-flush-interval-ms:60000}")
+    @PreDestroy
+    public void flushMemoryHits() {
+        if (pendingMemoryHits.isEmpty()) return;
+        Instant now = Instant.now();
+        for (String key : pendingMemoryHits.keySet()) {
+            LongAdder pending = pendingMemoryHits.remove(key);
+            if (pending == null) continue;
+            try {
+                extractionResultRepository.recordHits(key, pending.sum(), now);
+            } catch (Exception e) {
+                log.warn("Failed to record extraction cache hits for key={}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /** Drops persisted entries that were neither created nor hit (in either tier) within the retention period. */
+    @Scheduled(cron = "${app.extraction.cache.cleanup-cron:0 30 3 * * *}")
+    public void deleteUnused() {
+        if (!persistent) return;
+        flushMemoryHits();
+        int deleted = extractionResultRepository.deleteUnusedSince(Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Extraction cache: deleted {} entries unused for {}", deleted, retention);
+        }
+    }
+
+    double hitRatio() {
+        long total = lookups.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    private void recordHit(ExtractionDocumentType documentType, String tier, Completion completion) {
+        hits.incrementAndGet();
+        lookupCounter(documentType, tier).increment();
+        Counter.builder("extraction.cache.tokens.saved")
+                .description("OpenAI tokens not spent because the extraction was served from cache")
+                .tag("document", documentTag(documentType))
+                .register(meterRegistry)
+                .increment(completion.totalTokens());
+    }
+
+    private Counter lookupCounter(ExtractionDocumentType documentType, String result) {
+        return Counter.builder("extraction.cache.lookups")
+                .tag("document", documentTag(documentType))
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /** Same values as the document tag on extraction.requests. */
+    private static String documentTag(ExtractionDocumentType documentType) {
+        return documentType.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(ExtractionDocumentType documentType, String model, String promptVersion, String contentSha256) {
+        return documentType.name() + ":" + model + ":" + promptVersion + ":" + contentSha256;
+    }
+}
@@ -8,15 +8,23 @@ import com.stockyourlot.entity.FileType;
 import com.stockyourlot.entity.Purchase;
 import com.stockyourlot.repository.FileMetadataRepository;
 import com.stockyourlot.repository.PurchaseRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +41,50 @@ public class FileMetadataService {
     /** Holder for bill-of-sale and condition-report file IDs per purchase. */
     public record BillAndConditionReportFileIds(UUID billOfSaleFileId, UUID conditionReportFileId) {}
 
-    /** File content for download: bytes, content type, and suggested filename. */
-    public record FileDownload(byte[] content, String contentType, String fileName) {}
+    /**
+     * Everything needed to answer a download from the database alone: where the object lives, content type,
+     * suggested filename and the validators (ETag from the object generation, Last-Modified from the row).
+     */
+    public record FileDownload(UUID fileId, String objectPath, String contentType, String fileName,
+                               String etag, Instant lastModified) {}
+
+    /** Inclusive byte range of a single-range request. */
+    public record ByteRange(long start, long end) {
+
+        /**
+         * Parses a single "bytes=" range against the object size. Empty means serve the whole object (no header,
+         * unsupported unit, multiple ranges or bad syntax); a returned range may still be unsatisfiable.
+         */
+        public static Optional<ByteRange> parse(String header, long size) {
+            if (header == null || !header.startsWith("bytes=")) return Optional.empty();
+            String spec = header.substring("bytes=".length()).trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0 || spec.contains(",")) return Optional.empty();
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            try {
+                if (first.isEmpty()) {
+                    long suffix = Long.parseLong(last);
+                    return Optional.of(new ByteRange(Math.max(size - suffix, 0), suffix > 0 ? size - 1 : -1));
+                }
+                long start = Long.parseLong(first);
+                if (last.isEmpty()) return Optional.of(new ByteRange(start, size - 1));
+                long end = Long.parseLong(last);
+                if (end < start) return Optional.empty();
+                return Optional.of(new ByteRange(start, Math.min(end, size - 1)));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+
+        public boolean isSatisfiable(long size) {
+            return start >= 0 && start < size && start <= end;
+        }
+
+        public long length() {
+            return end - start + 1;
+        }
+    }
 
     private static final String PDF_CONTENT_TYPE = "application/pdf";
     private static final long MAX_FILE_SIZE_BYTES = 20 * 1024 * 1024; // 20 MB
@@ -45,13 +95,23 @@ public class FileMetadataService {
     private final PurchaseRepository purchaseRepository;
     private final FileMetadataRepository fileMetadataRepository;
     private final GcsFileStorageService gcsFileStorageService;
+    private final PendingFileRelocator pendingFileRelocator;
+    private final Timer claimTimer;
+    private final DistributionSummary filesClaimed;
 
     public FileMetadataService(PurchaseRepository purchaseRepository,
                                FileMetadataRepository fileMetadataRepository,
-                               GcsFileStorageService gcsFileStorageService) {
+                               GcsFileStorageService gcsFileStorageService,
+                               PendingFileRelocator pendingFileRelocator,
+                               MeterRegistry meterRegistry) {
         this.purchaseRepository = purchaseRepository;
         this.fileMetadataRepository = fileMetadataRepository;
         this.gcsFileStorageService = gcsFileStorageService;
+        this.pendingFileRelocator = pendingFileRelocator;
+        this.claimTimer = Timer.builder("files.claim.pending").register(meterRegistry);
+        this.filesClaimed = DistributionSummary.builder("files.claim.pending.files")
+                .description("Pending files linked to a purchase per claim")
+                .register(meterRegistry);
     }
 
     @Transactional
@@ -84,8 +144,10 @@ public class FileMetadataService {
 
         String objectPath = buildObjectPathForPurchase(dealership, purchase.getVin(), fileType);
 
-        byte[] content = file.getBytes();
-        gcsFileStorageService.upload(objectPath, content, PDF_CONTENT_TYPE);
+        Long generation;
+        try (InputStream content = file.getInputStream()) {
+            generation = gcsFileStorageService.upload(objectPath, content, PDF_CONTENT_TYPE);
+        }
 
         FileMetadata meta = new FileMetadata();
         meta.setPurchase(purchase);
@@ -98,6 +160,7 @@ public class FileMetadataService {
         meta.setFileType(fileType);
         meta.setBucket(gcsFileStorageService.getBucketName());
         meta.setObjectPath(objectPath);
+        meta.setObjectGeneration(generation);
         meta.setContentType(PDF_CONTENT_TYPE);
         meta.setSizeBytes(file.getSize());
         meta = fileMetadataRepository.save(meta);
@@ -105,6 +168,34 @@ public class FileMetadataService {
         return toResponse(meta);
     }
 
+    /**
+     * Uploads an extracted PDF to the pending path for uploadToken and records it as PENDING file metadata, to be
+     * claimed when the purchase is created. fileName is the name shown for the file (null = pendingFileName).
+     * @throws ResponseStatusException 500 if the upload or the metadata insert fails
+     */
+    public void savePending(String uploadToken, String pendingFileName, String fileName, FileType fileType,
+                            InputStream content, long sizeBytes) {
+        try {
+            Long generation = gcsFileStorageService.uploadPending(uploadToken, pendingFileName, content);
+            FileMetadata meta = new FileMetadata();
+            meta.setPurchase(null);
+            meta.setDealership(null);
+            meta.setStatus(FileStatus.PENDING);
+            meta.setUploadToken(uploadToken);
+            meta.setFileName(fileName != null ? fileName : pendingFileName);
+            meta.setBucket(gcsFileStorageService.getBucketName());
+            meta.setObjectPath(GcsFileStorageService.pendingPath(uploadToken, pendingFileName));
+            meta.setObjectGeneration(generation);
+            meta.setContentType(PDF_CONTENT_TYPE);
+            meta.setFileType(fileType);
+            meta.setSizeBytes(sizeBytes);
+            fileMetadataRepository.save(meta);
+        } catch (Exception e) {
+            log.warn("Failed to save pending {} to GCS/metadata", fileType, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Extraction succeeded but failed to save file");
+        }
+    }
+
     @Transactional(readOnly = true)
     public List<FileMetadataResponse> getByPurchaseId(UUID purchaseId) {
         return fileMetadataRepository.findByPurchase_IdOrderByCreatedAtDesc(purchaseId).stream()
@@ -131,26 +222,18 @@ public class FileMetadataService {
     }
 
     /**
-     * Returns the file content for download by file metadata ID. Uses metadata to resolve GCS object path.
-     * @throws ResponseStatusException 404 if metadata not found or object not found in GCS
+     * Resolves a file for download from its metadata only, so conditional requests can be answered (304)
+     * without touching storage.
+     * @throws ResponseStatusException 404 if metadata not found
      */
     @Transactional(readOnly = true)
-    public FileDownload getFileContent(UUID fileId) {
+    public FileDownload getFileForDownload(UUID fileId) {
         FileMetadata meta = fileMetadataRepository.findById(fileId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "File not found: " + fileId));
-        String objectPath = meta.getObjectPath();
         String metaBucket = meta.getBucket();
         String configuredBucket = gcsFileStorageService.getBucketName();
-        log.info("getFileContent: fileId={}, objectPath={}, meta.bucket={}, app.gcs.bucket={}",
-                fileId, objectPath, metaBucket, configuredBucket);
         if (metaBucket != null && !metaBucket.equals(configuredBucket)) {
-            log.warn("getFileContent: bucket mismatch - DB has bucket '{}' but app is using '{}'", metaBucket, configuredBucket);
-        }
-        Optional<byte[]> content = gcsFileStorageService.getContent(objectPath);
-        if (content.isEmpty()) {
-            log.warn("File metadata found but object missing in GCS: fileId={}, objectPath={}, bucketUsed={}",
-                    fileId, objectPath, configuredBucket);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "File content not found in storage: " + fileId);
+            log.warn("getFileForDownload: bucket mismatch - DB has bucket '{}' but app is using '{}'", metaBucket, configuredBucket);
         }
         String contentType = meta.getContentType() != null && !meta.getContentType().isBlank()
                 ? meta.getContentType()
@@ -158,7 +241,30 @@ public class FileMetadataService {
         String fileName = meta.getFileName() != null && !meta.getFileName().isBlank()
                 ? meta.getFileName()
                 : (meta.getFileType() != null ? meta.getFileType().name().toLowerCase().replace('_', '-') + ".pdf" : "file.pdf");
-        return new FileDownload(content.get(), contentType, fileName);
+        String etag = meta.getObjectGeneration() != null
+                ? "\"" + meta.getObjectGeneration() + "\""
+                : "\"" + meta.getId() + "-" + meta.getUpdatedAt().toEpochMilli() + "\"";
+        return new FileDownload(meta.getId(), meta.getObjectPath(), contentType, fileName, etag, meta.getUpdatedAt());
+    }
+
+    /**
+     * Current size of the stored object (metadata call only).
+     * @throws ResponseStatusException 404 if the object is missing in GCS
+     */
+    public long getStoredSize(FileDownload download) {
+        return gcsFileStorageService.getSize(download.objectPath())
+                .orElseThrow(() -> {
+                    log.warn("File metadata found but object missing in GCS: fileId={}, objectPath={}, bucketUsed={}",
+                            download.fileId(), download.objectPath(), gcsFileStorageService.getBucketName());
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "File content not found in storage: " + download.fileId());
+                });
+    }
+
+    /**
+     * Streams bytes [start, end] of the file to out without buffering the object in memory.
+     */
+    public void streamFile(FileDownload download, long start, long end, OutputStream out) throws IOException {
+        gcsFileStorageService.streamTo(download.objectPath(), start, end, out);
     }
 
     /**
@@ -169,7 +275,11 @@ public class FileMetadataService {
         if (purchaseIds == null || purchaseIds.isEmpty()) {
             return Map.of();
         }
-        List<FileMetadata> files = fileMetadataRepository.findByPurchase_IdIn(purchaseIds);
+        return groupBillAndConditionReportFileIds(fileMetadataRepository.findByPurchase_IdIn(purchaseIds));
+    }
+
+    /** Earliest bill of sale and condition report per purchase among the given files. */
+    static Map<UUID, BillAndConditionReportFileIds> groupBillAndConditionReportFileIds(List<FileMetadata> files) {
         return files.stream()
                 .filter(f -> f.getFileType() == FileType.BILL_OF_SALE || f.getFileType() == FileType.CONDITION_REPORT)
                 .collect(Collectors.groupingBy(f -> f.getPurchase().getId()))
@@ -187,11 +297,17 @@ public class FileMetadataService {
     }
 
     /**
-     * Claims PENDING file metadata for the given upload token: moves objects from pending path to final path,
-     * links them to the purchase and dealership, and sets status to ACTIVE.
+     * Claims PENDING file metadata for the given upload token: links the files to the purchase and dealership and
+     * sets status to ACTIVE. Objects stay at their pending path (still downloadable) until after commit, when
+     * {@link PendingFileRelocator} moves them server-side to the purchase path, so the purchase transaction never
+     * waits on object storage.
      */
     @Transactional
-    public void claimPendingFiles(String uploadToken, Purchase purchase) throws IOException {
+    public void claimPendingFiles(String uploadToken, Purchase purchase) {
+        claimTimer.record(() -> doClaimPendingFiles(uploadToken, purchase));
+    }
+
+    private void doClaimPendingFiles(String uploadToken, Purchase purchase) {
         if (uploadToken == null || uploadToken.isBlank()) return;
         if (!gcsFileStorageService.isBucketConfigured()) return;
 
@@ -199,29 +315,33 @@ public class FileMetadataService {
         if (dealership == null) return;
 
         List<FileMetadata> pending = fileMetadataRepository.findByUploadTokenAndStatusOrderByCreatedAtAsc(uploadToken, FileStatus.PENDING);
+        if (pending.isEmpty()) return;
         for (FileMetadata meta : pending) {
-            String currentPath = meta.getObjectPath();
-            Optional<byte[]> content = gcsFileStorageService.getContent(currentPath);
-            if (content.isEmpty()) continue;
-
-            String finalPath = buildObjectPathForPurchase(dealership, purchase.getVin(), meta.getFileType());
-            gcsFileStorageService.upload(finalPath, content.get(), meta.getContentType());
-
             meta.setPurchase(purchase);
             meta.setDealership(dealership);
-            meta.setObjectPath(finalPath);
             meta.setStatus(FileStatus.ACTIVE);
             meta.setUploadToken(null);
-            fileMetadataRepository.save(meta);
+        }
+        fileMetadataRepository.saveAll(pending);
+        filesClaimed.record(pending.size());
 
-            gcsFileStorageService.delete(currentPath);
+        List<UUID> fileIds = pending.stream().map(FileMetadata::getId).toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendingFileRelocator.relocate(fileIds);
+                }
+            });
+        } else {
+            pendingFileRelocator.relocate(fileIds);
         }
     }
 
     /**
      * Builds object path {safeDealershipName}/{safeVin}/{fileType}.pdf for a purchase.
      */
-    private static String buildObjectPathForPurchase(Dealership dealership, String vin, FileType fileType) {
+    static String buildObjectPathForPurchase(Dealership dealership, String vin, FileType fileType) {
         String dealershipName = dealership.getName();
         if (dealershipName == null || dealershipName.isBlank()) dealershipName = "Unknown";
         String safeDealershipName = SAFE_PATH_SEGMENT.matcher(dealershipName).replaceAll("_").replaceAll("_+", "_");
@@ -1,8 +1,14 @@
 package com.stockyourlot.service;
 
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +16,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
  * Uploads file content to Google Cloud Storage. Supports pending paths for extract flow.
  * Storage is optional (null when credentials file is not available); GCS operations are no-ops then.
+ * <p>
+ * Metrics: gcs.requests timer (tags operation=upload|copy|delete|get_size|stream, outcome) and gcs.object.bytes
+ * per operation.
  */
 @Service
 public class GcsFileStorageService {
@@ -23,14 +35,19 @@ public class GcsFileStorageService {
 
     public static final String PENDING_PREFIX = "pending/";
     private static final String PDF_CONTENT_TYPE = "application/pdf";
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+    /** Resumable upload chunk; GCS requires a multiple of 256 KiB. */
+    private static final int UPLOAD_CHUNK_BYTES = 1024 * 1024;
 
     private final Storage storage;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.gcs.bucket:}")
     private String bucketName;
 
-    public GcsFileStorageService(@Autowired(required = false) Storage storage) {
+    public GcsFileStorageService(@Autowired(required = false) Storage storage, MeterRegistry meterRegistry) {
         this.storage = storage;
+        this.meterRegistry = meterRegistry;
     }
 
     public String getBucketName() {
@@ -42,9 +59,11 @@ public class GcsFileStorageService {
     }
 
     /**
-     * Upload bytes to GCS at the given path within the configured bucket.
+     * Streams content to GCS at the given path within the configured bucket using a resumable upload
+     * (Storage.createFrom drives a WriteChannel in UPLOAD_CHUNK_BYTES chunks), so at most one chunk is held in
+     * memory. Returns the new object generation.
      */
-    public void upload(String objectPath, byte[] content, String contentType) throws IOException {
+    public Long upload(String objectPath, InputStream content, String contentType) throws IOException {
         if (!isBucketConfigured()) {
             throw new IllegalStateException("GCS is not configured (app.gcs.bucket and credentials required)");
         }
@@ -52,44 +71,126 @@ public class GcsFileStorageService {
         BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
                 .setContentType(contentType)
                 .build();
-        storage.create(blobInfo, content);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Blob blob = storage.createFrom(blobInfo, content, UPLOAD_CHUNK_BYTES);
+            outcome = "success";
+            if (blob.getSize() != null) {
+                recordBytes("upload", blob.getSize());
+            }
+            return blob.getGeneration();
+        } finally {
+            sample.stop(requestTimer("upload", outcome));
+        }
     }
 
     /**
-     * Upload a PDF to pending path: pending/{uploadToken}/{fileName}.
+     * Upload a PDF to pending path: pending/{uploadToken}/{fileName}. Returns the object generation (null if GCS is off).
      */
-    public void uploadPending(String uploadToken, String fileName, byte[] content) throws IOException {
-        if (!isBucketConfigured()) return;
+    public Long uploadPending(String uploadToken, String fileName, InputStream content) throws IOException {
+        if (!isBucketConfigured()) return null;
         String path = pendingPath(uploadToken, fileName);
-        upload(path, content, PDF_CONTENT_TYPE);
+        return upload(path, content, PDF_CONTENT_TYPE);
     }
 
     public static String pendingPath(String uploadToken, String fileName) {
         return PENDING_PREFIX + uploadToken + "/" + fileName;
     }
 
+    private Timer requestTimer(String operation, String outcome) {
+        return Timer.builder("gcs.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void recordBytes(String operation, long bytes) {
+        DistributionSummary.builder("gcs.object.bytes")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
     /**
-     * Get content of an object, or empty if it does not exist.
+     * Server-side copy within the bucket via the rewrite API; no bytes pass through the JVM and the target keeps the
+     * source's content type. Returns the target's generation, or null if the source object does not exist.
      */
-    public Optional<byte[]> getContent(String objectPath) {
-        log.debug("getContent: bucket={}, objectPath={}, isBucketConfigured={}, storageNull={}",
-                bucketName, objectPath, isBucketConfigured(), storage == null);
+    public Long copy(String sourcePath, String targetPath) {
         if (!isBucketConfigured()) {
-            log.warn("getContent: skipped - GCS not configured (bucket={})", bucketName);
-            return Optional.empty();
+            throw new IllegalStateException("GCS is not configured (app.gcs.bucket and credentials required)");
         }
-        if (storage == null) {
-            log.warn("getContent: skipped - Storage bean is null");
-            return Optional.empty();
+        Storage.CopyRequest request = Storage.CopyRequest.newBuilder()
+                .setSource(BlobId.of(bucketName, sourcePath))
+                .setTarget(BlobId.of(bucketName, targetPath))
+                .build();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            // getResult() keeps issuing rewrite calls until large objects are fully copied
+            Blob target = storage.copy(request).getResult();
+            outcome = "success";
+            if (target.getSize() != null) {
+                recordBytes("copy", target.getSize());
+            }
+            return target.getGeneration();
+        } catch (StorageException e) {
+            if (e.getCode() == 404) {
+                outcome = "not_found";
+                log.warn("copy: source not found bucket={}, objectPath={}", bucketName, sourcePath);
+                return null;
+            }
+            throw e;
+        } finally {
+            sample.stop(requestTimer("copy", outcome));
         }
-        BlobId blobId = BlobId.of(bucketName, objectPath);
-        var blob = storage.get(blobId);
-        if (blob == null) {
-            log.warn("getContent: blob not found in GCS for bucket={}, objectPath={}", bucketName, objectPath);
-            return Optional.empty();
+    }
+
+    /**
+     * Size of the object in bytes from its metadata (no content read), or empty if it does not exist.
+     */
+    public Optional<Long> getSize(String objectPath) {
+        if (!isBucketConfigured()) return Optional.empty();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Blob blob = storage.get(BlobId.of(bucketName, objectPath), Storage.BlobGetOption.fields(Storage.BlobField.SIZE));
+            outcome = blob != null ? "success" : "not_found";
+            return blob != null ? Optional.of(blob.getSize()) : Optional.empty();
+        } finally {
+            sample.stop(requestTimer("get_size", outcome));
+        }
+    }
+
+    /**
+     * Streams bytes [start, endInclusive] of the object to out through a ReadChannel, holding at most one
+     * STREAM_BUFFER_BYTES buffer in memory regardless of the object size.
+     */
+    public void streamTo(String objectPath, long start, long endInclusive, OutputStream out) throws IOException {
+        if (!isBucketConfigured()) {
+            throw new IllegalStateException("GCS is not configured (app.gcs.bucket and credentials required)");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        long written = 0;
+        try (ReadChannel reader = storage.reader(BlobId.of(bucketName, objectPath))) {
+            reader.setChunkSize(STREAM_BUFFER_BYTES);
+            reader.seek(start);
+            reader.limit(endInclusive + 1);
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_BYTES);
+            while (reader.read(buffer) != -1) {
+                buffer.flip();
+                out.write(buffer.array(), 0, buffer.limit());
+                written += buffer.limit();
+                buffer.clear();
+            }
+            outcome = "success";
+        } finally {
+            // Includes time spent writing to the client; a client abort ends as outcome=error
+            sample.stop(requestTimer("stream", outcome));
+            recordBytes("stream", written);
         }
-        log.debug("getContent: found blob in GCS, size={} bytes", blob.getSize());
-        return Optional.of(blob.getContent());
     }
 
     /**
@@ -97,6 +198,12 @@ public class GcsFileStorageService {
      */
     public void delete(String objectPath) {
         if (!isBucketConfigured() || storage == null) return;
-        storage.delete(BlobId.of(bucketName, objectPath));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            outcome = storage.delete(BlobId.of(bucketName, objectPath)) ? "success" : "not_found";
+        } finally {
+            sample.stop(requestTimer("delete", outcome));
+        }
     }
 }
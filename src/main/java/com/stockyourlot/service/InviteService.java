@@ -1,5 +1,6 @@
 package com.stockyourlot.service;
 
+import com.stockyourlot.config.AuthPrincipalCache;
 import com.stockyourlot.config.InviteTokenUtil;
 import com.stockyourlot.dto.InviteValidateResponse;
 import com.stockyourlot.entity.Dealership;
@@ -38,6 +39,7 @@ public class InviteService {
     private final InviteEmailService inviteEmailService;
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
     private final UserService userService;
+    private final AuthPrincipalCache authPrincipalCache;
 
     @Value("${app.invite.base-url:http://localhost:8080}")
     private String baseUrl;
@@ -49,7 +51,8 @@ public class InviteService {
                          InviteTokenUtil inviteTokenUtil,
                          InviteEmailService inviteEmailService,
                          org.springframework.security.crypto.password.PasswordEncoder passwordEncoder,
-                         UserService userService) {
+                         UserService userService,
+                         AuthPrincipalCache authPrincipalCache) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.dealershipRepository = dealershipRepository;
@@ -58,6 +61,7 @@ public class InviteService {
         this.inviteEmailService = inviteEmailService;
         this.passwordEncoder = passwordEncoder;
         this.userService = userService;
+        this.authPrincipalCache = authPrincipalCache;
     }
 
     /**
@@ -216,6 +220,7 @@ public class InviteService {
         user.setPasswordHash(passwordEncoder.encode(password));
         user.setStatus("ACTIVE");
         userRepository.save(user);
+        authPrincipalCache.evict(user.getEmail());
         log.info("acceptInvite: activated user id={}, email={}", user.getId(), user.getEmail());
 
         invite.setStatus(InviteStatus.ACCEPTED);
@@ -0,0 +1,234 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.dto.BillOfSaleExtractionResponse;
+import com.stockyourlot.dto.ConditionReportExtractionResponse;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule-based extraction for fixed-layout documents (Manheim, ADESA and similar auction paperwork), tried before
+ * OpenAI. Fields are pulled with labelled patterns; the result is only used when it is unambiguous: the document's
+ * own title and not the other document's (so a bill of sale posted as a condition report, or the reverse, still
+ * goes to OpenAI's validity check), exactly one VIN that passes the check digit, a year that agrees with the VIN's
+ * model-year code, make, model, trim, mileage, and price for a bill of sale. Anything less returns empty and the
+ * caller falls back to OpenAI.
+ */
+final class LocalFieldExtractor {
+
+    /** Values of the response "source" field: which path produced the fields. */
+    static final String SOURCE_RULES = "rules";
+    static final String SOURCE_OPENAI = "openai";
+    static final String SOURCE_CACHE = "cache";
+
+    private static final String VIN_TRANSLITERATION = "0123456789.ABCDEFGH..JKLMN.P.R..STUVWXYZ";
+    private static final int[] VIN_TRANSLITERATED_VALUES = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0,
+            1, 2, 3, 4, 5, 6, 7, 8, 0, 0, 1, 2, 3, 4, 5, 0, 7, 0, 9, 0, 0, 2, 3, 4, 5, 6, 7, 8, 9};
+    private static final int[] VIN_WEIGHTS = {8, 7, 6, 5, 4, 3, 2, 10, 0, 9, 8, 7, 6, 5, 4, 3, 2};
+    /** VIN position 10: model year, repeating every 30 years from 1980. */
+    private static final String VIN_YEAR_CODES = "ABCDEFGHJKLMNPRSTVWXY123456789";
+
+    private static final List<String> MAKES = List.of(
+            "Acura", "Alfa Romeo", "Audi", "BMW", "Buick", "Cadillac", "Chevrolet", "Chrysler", "Dodge", "Fiat",
+            "Ford", "Genesis", "GMC", "Honda", "Hyundai", "Infiniti", "Jaguar", "Jeep", "Kia", "Land Rover", "Lexus",
+            "Lincoln", "Mazda", "Mercedes-Benz", "Mini", "Mitsubishi", "Nissan", "Porsche", "Ram", "Subaru", "Tesla",
+            "Toyota", "Volkswagen", "Volvo");
+    private static final Map<Pattern, String> AUCTIONS = new LinkedHashMap<>();
+
+    static {
+        AUCTIONS.put(Pattern.compile("\\bmanheim\\b", Pattern.CASE_INSENSITIVE), "Manheim");
+        AUCTIONS.put(Pattern.compile("\\badesa\\b", Pattern.CASE_INSENSITIVE), "ADESA");
+        AUCTIONS.put(Pattern.compile("\\bacv auctions?\\b", Pattern.CASE_INSENSITIVE), "ACV Auctions");
+        AUCTIONS.put(Pattern.compile("\\bamerica'?s auto auction\\b", Pattern.CASE_INSENSITIVE), "America's Auto Auction");
+        AUCTIONS.put(Pattern.compile("\\bcopart\\b", Pattern.CASE_INSENSITIVE), "Copart");
+        AUCTIONS.put(Pattern.compile("\\b(?:IAA|insurance auto auctions)\\b"), "IAA");
+    }
+
+    private static final String MAKE_ALTERNATION = String.join("|",
+            MAKES.stream().map(m -> m.replace(" ", "\\s+").replace("-", "[- ]?")).toList());
+    private static final Pattern YEAR_MAKE_MODEL = Pattern.compile(
+            "\\b((?:19|20)\\d{2})\\s+(" + MAKE_ALTERNATION + ")\\s+([A-Za-z0-9][A-Za-z0-9-]*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern YEAR_LABEL = Pattern.compile("\\byear\\s*[:#]?\\s*((?:19|20)\\d{2})\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern MAKE_LABEL = Pattern.compile("\\bmake\\s*[:#]?\\s*(" + MAKE_ALTERNATION + ")\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern MODEL_LABEL = Pattern.compile("\\bmodel\\s*[:#]\\s*([A-Za-z0-9][A-Za-z0-9-]*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TRIM_LABEL = Pattern.compile("\\btrim(?:\\s+level)?\\s*[:#]", Pattern.CASE_INSENSITIVE);
+    /** Where a value running to the end of its line stops: a wide gap or the next field label. */
+    private static final Pattern VALUE_END = Pattern.compile(
+            "\\s{2,}|\\b(?:vin|odometer|mileage|miles|colou?r|ext|int|exterior|interior|price|sale|sold|buyer|seller|stock|lot|grade|year|make|model)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final int MAX_TRIM_CHARS = 30;
+    private static final Pattern MILES = Pattern.compile(
+            "\\b(?:odometer|mileage|miles)(?:\\s+reading)?\\s*[:#]?\\s*([0-9]{1,3}(?:,[0-9]{3})+|[0-9]{1,7})\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PRICE = Pattern.compile(
+            "\\b(?:sale|sales|purchase|selling|vehicle)\\s+price\\s*[:#]?\\s*\\$?\\s*([0-9]{1,3}(?:,[0-9]{3})+(?:\\.[0-9]{2})?|[0-9]+(?:\\.[0-9]{2})?)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COLOR = Pattern.compile("\\b(?:exterior\\s+|ext\\.?\\s+)?colou?r\\s*[:#]\\s*([A-Za-z]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SALE_DATE = Pattern.compile(
+            "\\b(?:sale\\s+date|date\\s+of\\s+sale|sold\\s+on)\\s*[:#]?\\s*(\\d{4}-\\d{2}-\\d{2}|\\d{1,2}/\\d{1,2}/\\d{4})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern US_DATE = Pattern.compile("(\\d{1,2})/(\\d{1,2})/(\\d{4})");
+    private static final String BILL_OF_SALE_TITLE = "bill of sale";
+    private static final String CONDITION_REPORT_TITLE = "condition report";
+
+    private LocalFieldExtractor() {}
+
+    private record Fields(String vin, String make, String model, String trim, String color, BigDecimal purchasePrice,
+                          String auction, Integer vehicleYear, Integer miles, String saleDate) {
+
+        /** Every vehicle field the OpenAI path would return, so skipping it drops nothing. */
+        boolean hasVehicle() {
+            return vin != null && make != null && model != null && trim != null && vehicleYear != null && miles != null;
+        }
+    }
+
+    static Optional<BillOfSaleExtractionResponse> billOfSale(String text) {
+        if (!hasOnlyTitle(text, BILL_OF_SALE_TITLE, CONDITION_REPORT_TITLE)) {
+            return Optional.empty();
+        }
+        Fields f = extract(text);
+        if (!f.hasVehicle() || f.purchasePrice() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new BillOfSaleExtractionResponse(f.vin(), f.make(), f.model(), f.trim(), f.color(),
+                f.purchasePrice(), f.auction(), f.vehicleYear(), f.miles(), f.saleDate(), true, null, SOURCE_RULES));
+    }
+
+    static Optional<ConditionReportExtractionResponse> conditionReport(String text) {
+        if (!hasOnlyTitle(text, CONDITION_REPORT_TITLE, BILL_OF_SALE_TITLE)) {
+            return Optional.empty();
+        }
+        Fields f = extract(text);
+        if (!f.hasVehicle()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ConditionReportExtractionResponse(f.vin(), f.make(), f.model(), f.trim(), f.color(),
+                f.auction(), f.vehicleYear(), f.miles(), true, null, SOURCE_RULES));
+    }
+
+    private static boolean hasOnlyTitle(String text, String title, String otherTitle) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        return lower.contains(title) && !lower.contains(otherTitle);
+    }
+
+    private static Fields extract(String text) {
+        String vin = singleValidVin(text);
+
+        Integer year = null;
+        String make = null;
+        String model = null;
+        String trim = null;
+        Matcher ymm = YEAR_MAKE_MODEL.matcher(text);
+        if (ymm.find()) {
+            year = Integer.parseInt(ymm.group(1));
+            make = canonicalMake(ymm.group(2));
+            model = ymm.group(3);
+            trim = restOfLine(text, ymm.end()); // "2021 Honda Accord EX-L"
+        } else {
+            String y = firstGroup(YEAR_LABEL, text);
+            year = y != null ? Integer.valueOf(y) : null;
+            String m = firstGroup(MAKE_LABEL, text);
+            make = m != null ? canonicalMake(m) : null;
+            model = firstGroup(MODEL_LABEL, text);
+        }
+        Matcher trimLabel = TRIM_LABEL.matcher(text);
+        if (trimLabel.find()) {
+            trim = restOfLine(text, trimLabel.end());
+        }
+        if (vin != null && year != null && !vinYearMatches(vin, year)) {
+            year = null; // conflicting year: not confident
+        }
+
+        String milesText = firstGroup(MILES, text);
+        Integer miles = milesText != null ? Integer.valueOf(milesText.replace(",", "")) : null;
+        if (miles != null && miles >= 1_000_000) miles = null;
+
+        String priceText = firstGroup(PRICE, text);
+        BigDecimal price = priceText != null ? new BigDecimal(priceText.replace(",", "")) : null;
+        if (price != null && price.signum() <= 0) price = null;
+
+        String color = firstGroup(COLOR, text);
+        if (color != null) {
+            color = color.substring(0, 1).toUpperCase(Locale.ROOT) + color.substring(1).toLowerCase(Locale.ROOT);
+        }
+
+        String auction = null;
+        for (Map.Entry<Pattern, String> entry : AUCTIONS.entrySet()) {
+            if (entry.getKey().matcher(text).find()) {
+                auction = entry.getValue();
+                break;
+            }
+        }
+
+        String saleDate = firstGroup(SALE_DATE, text);
+        if (saleDate != null) {
+            Matcher us = US_DATE.matcher(saleDate);
+            if (us.matches()) {
+                saleDate = "%s-%02d-%02d".formatted(us.group(3), Integer.parseInt(us.group(1)), Integer.parseInt(us.group(2)));
+            }
+        }
+        return new Fields(vin, make, model, trim, color, price, auction, year, miles, saleDate);
+    }
+
+    /** The document's VIN when exactly one distinct candidate passes the check digit. */
+    private static String singleValidVin(String text) {
+        Set<String> valid = new LinkedHashSet<>();
+        Matcher m = PdfTextExtractor.VIN_PATTERN.matcher(text);
+        while (m.find()) {
+            if (isValidVin(m.group())) valid.add(m.group());
+        }
+        return valid.size() == 1 ? valid.iterator().next() : null;
+    }
+
+    /** ISO 3779 / 49 CFR 565 check digit (position 9). Only North American VINs are guaranteed to carry one. */
+    static boolean isValidVin(String vin) {
+        if (vin == null || vin.length() != 17) return false;
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            int idx = VIN_TRANSLITERATION.indexOf(vin.charAt(i));
+            if (idx < 0 || VIN_TRANSLITERATION.charAt(idx) == '.') return false;
+            sum += VIN_TRANSLITERATED_VALUES[idx] * VIN_WEIGHTS[i];
+        }
+        int check = sum % 11;
+        char expected = check == 10 ? 'X' : (char) ('0' + check);
+        return vin.charAt(8) == expected;
+    }
+
+    private static boolean vinYearMatches(String vin, int year) {
+        int code = VIN_YEAR_CODES.indexOf(vin.charAt(9));
+        if (code < 0) return false;
+        return (year - 1980 - code) % 30 == 0;
+    }
+
+    private static String canonicalMake(String found) {
+        String normalized = found.replaceAll("[\\s-]+", "").toLowerCase(Locale.ROOT);
+        for (String make : MAKES) {
+            if (make.replaceAll("[\\s-]+", "").toLowerCase(Locale.ROOT).equals(normalized)) return make;
+        }
+        return found;
+    }
+
+    /** The rest of the line from index, cut at a wide gap or the next label; null if empty or implausibly long. */
+    private static String restOfLine(String text, int from) {
+        int eol = text.indexOf('\n', from);
+        String value = text.substring(from, eol < 0 ? text.length() : eol).strip();
+        Matcher end = VALUE_END.matcher(value);
+        if (end.find()) {
+            value = value.substring(0, end.start());
+        }
+        value = value.replaceAll("[\\s,;]+$", "");
+        return value.isEmpty() || value.length() > MAX_TRIM_CHARS ? null : value;
+    }
+
+    private static String firstGroup(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        return m.find() ? m.group(1) : null;
+    }
+}
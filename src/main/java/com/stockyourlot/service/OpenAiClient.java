@@ -0,0 +1,462 @@
+package com.stockyourlot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chat completions client shared by the extraction services. One JDK HttpClient (HTTP/2, pooled keep-alive
+ * connections) replaces a per-service RestTemplate that opened a new connection and TLS session per call.
+ * <ul>
+ *   <li>At most app.openai.max-concurrent calls run at once; callers wait up to acquire-timeout-ms, then get 503.</li>
+ *   <li>429 (except insufficient_quota), 5xx and I/O errors are retried with jittered exponential backoff, or after
+ *   the Retry-After the server sent (a Retry-After beyond max-retry-after-ms gives up instead).</li>
+ *   <li>With hedge-after-ms &gt; 0 a second identical request is sent when the first has not answered in time and
+ *   a permit is free; the first response wins. Off by default since a hedge can double token spend.</li>
+ *   <li>After circuit.failure-threshold consecutive calls fail transiently, calls fail fast with 503 for
+ *   circuit.open-ms; then a single trial call decides whether to close the circuit again.</li>
+ * </ul>
+ * Metrics: openai.requests (tags document, outcome), openai.tokens (document, type), openai.retries,
+ * openai.hedges, openai.rejected (document, reason=circuit_open|saturated), openai.circuit.open.
+ */
+@Component
+public class OpenAiClient {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiClient.class);
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 500, 502, 503, 504);
+
+    /** Completion text plus the token counts from the usage node (0 when absent). */
+    public record ChatCompletion(String content, int promptTokens, int completionTokens, int totalTokens) {}
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry;
+    private final String apiKey;
+    private final String model;
+    private final URI completionsUri;
+    private final Duration requestTimeout;
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration maxRetryAfter;
+    private final Duration hedgeAfter;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter retries;
+    private final Counter hedges;
+
+    public OpenAiClient(MeterRegistry meterRegistry,
+                        @Value("${openai.api.key:}") String apiKey,
+                        @Value("${openai.api.model:gpt-4o-mini}") String model,
+                        @Value("${openai.api.base-url:https://api.openai.com/v1}") String baseUrl,
+                        @Value("${app.openai.connect-timeout-ms:30000}") long connectTimeoutMs,
+                        @Value("${app.openai.request-timeout-ms:60000}") long requestTimeoutMs,
+                        @Value("${app.openai.max-concurrent:8}") int maxConcurrent,
+                        @Value("${app.openai.acquire-timeout-ms:10000}") long acquireTimeoutMs,
+                        @Value("${app.openai.max-attempts:3}") int maxAttempts,
+                        @Value("${app.openai.initial-backoff-ms:500}") long initialBackoffMs,
+                        @Value("${app.openai.max-backoff-ms:8000}") long maxBackoffMs,
+                        @Value("${app.openai.max-retry-after-ms:30000}") long maxRetryAfterMs,
+                        @Value("${app.openai.hedge-after-ms:0}") long hedgeAfterMs,
+                        @Value("${app.openai.circuit.failure-threshold:5}") int circuitFailureThreshold,
+                        @Value("${app.openai.circuit.open-ms:30000}") long circuitOpenMs) {
+        this.meterRegistry = meterRegistry;
+        this.apiKey = apiKey != null ? apiKey.trim() : "";
+        this.model = model;
+        this.completionsUri = URI.create(baseUrl.replaceAll("/+$", "") + "/chat/completions");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeout = Duration.ofMillis(acquireTimeoutMs);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+        this.maxRetryAfter = Duration.ofMillis(maxRetryAfterMs);
+        this.hedgeAfter = Duration.ofMillis(Math.max(hedgeAfterMs, 0));
+        this.circuitBreaker = new CircuitBreaker(circuitFailureThreshold, Duration.ofMillis(circuitOpenMs));
+        this.retries = Counter.builder("openai.retries")
+                .description("OpenAI attempts repeated after 429, 5xx or an I/O error")
+                .register(meterRegistry);
+        this.hedges = Counter.builder("openai.hedges")
+                .description("Second requests sent because the first was slower than hedge-after-ms")
+                .register(meterRegistry);
+        Gauge.builder("openai.circuit.open", circuitBreaker, cb -> cb.isOpen() ? 1 : 0)
+                .description("1 while OpenAI calls fail fast after repeated failures")
+                .register(meterRegistry);
+    }
+
+    public boolean isConfigured() {
+        return !apiKey.isEmpty();
+    }
+
+    public String model() {
+        return model;
+    }
+
+    /**
+     * Sends one system + user message pair and returns the first choice.
+     * @param document metrics tag for the calling flow (e.g. bill_of_sale)
+     * @throws ResponseStatusException 503 when not configured, saturated or the circuit is open; 502 for OpenAI
+     *         errors and unusable responses
+     */
+    public ChatCompletion complete(String document, String systemPrompt, String userPrompt) {
+        if (!isConfigured()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "OpenAI API key is not configured (OPENAI_API_KEY)");
+        }
+        if (!circuitBreaker.allowRequest()) {
+            rejected(document, "circuit_open");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "OpenAI is failing; calls are paused briefly, retry shortly");
+        }
+        if (!acquire()) {
+            circuitBreaker.release();
+            rejected(document, "saturated");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many OpenAI calls in progress; retry shortly");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        boolean circuitSettled = false;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(completionsUri)
+                    .timeout(requestTimeout)
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(Map.of(
+                            "model", model,
+                            "messages", List.of(
+                                    Map.of("role", "system", "content", systemPrompt),
+                                    Map.of("role", "user", "content", userPrompt)),
+                            "temperature", 0.1))))
+                    .build();
+            HttpResponse<String> response = sendWithRetries(request);
+            circuitBreaker.onSuccess();
+            circuitSettled = true;
+            if (response.statusCode() / 100 != 2) {
+                log.warn("OpenAI API error: status={} body={}", response.statusCode(), response.body());
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, errorMessage(response.body(), response.statusCode()));
+            }
+            ChatCompletion completion = parse(response.body());
+            outcome = "success";
+            tokenSummary(document, "prompt").record(completion.promptTokens());
+            tokenSummary(document, "completion").record(completion.completionTokens());
+            log.info("OpenAI tokens: prompt_tokens={}, completion_tokens={}, total_tokens={}",
+                    completion.promptTokens(), completion.completionTokens(), completion.totalTokens());
+            return completion;
+        } catch (TransientFailure e) {
+            circuitBreaker.onFailure();
+            circuitSettled = true;
+            outcome = "unavailable";
+            log.warn("OpenAI call failed after {} attempt(s): {}", e.attempts, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while calling OpenAI");
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not build OpenAI request");
+        } finally {
+            if (!circuitSettled) {
+                // Interrupted, request not built, or an unexpected RuntimeException: nothing learned about OpenAI,
+                // but a half-open trial slot must be freed or the circuit would never let another call through
+                circuitBreaker.release();
+            }
+            permits.release();
+            sample.stop(Timer.builder("openai.requests")
+                    .tag("document", document)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Returns the first non-retryable response (2xx or a client error); throws once attempts run out. */
+    private HttpResponse<String> sendWithRetries(HttpRequest request) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            HttpResponse<String> response = null;
+            String failure;
+            try {
+                response = send(request);
+                if (!isRetryable(response)) {
+                    return response;
+                }
+                failure = "status " + response.statusCode();
+            } catch (IOException e) {
+                failure = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+            }
+            if (attempt >= maxAttempts) {
+                throw new TransientFailure(attempt, "OpenAI unavailable (" + failure + ")");
+            }
+            Duration wait = backoff(attempt, response);
+            if (wait.compareTo(maxRetryAfter) > 0) {
+                throw new TransientFailure(attempt, "OpenAI asked to retry after " + wait.toSeconds() + "s (" + failure + ")");
+            }
+            retries.increment();
+            log.info("OpenAI attempt {} failed ({}); retrying in {} ms", attempt, failure, wait.toMillis());
+            Thread.sleep(wait.toMillis());
+        }
+    }
+
+    /** One exchange, hedged with a second identical request when enabled and the first is slow. */
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        if (hedgeAfter.isZero()) {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+        CompletableFuture<HttpResponse<String>> primary = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        try {
+            return primary.get(hedgeAfter.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // slow: hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        if (!permits.tryAcquire()) {
+            return await(primary);
+        }
+        hedges.increment();
+        CompletableFuture<HttpResponse<String>> hedge = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<HttpResponse<String>> first = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<HttpResponse<String>> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((response, error) -> {
+                if (error == null) {
+                    first.complete(response);
+                } else if (failed.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        try {
+            return await(first);
+        } finally {
+            primary.cancel(true);
+            hedge.cancel(true);
+            permits.release();
+        }
+    }
+
+    private static HttpResponse<String> await(CompletableFuture<HttpResponse<String>> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException io) return io;
+        if (cause instanceof CancellationException) return new IOException("OpenAI request cancelled", cause);
+        if (cause instanceof RuntimeException re) throw re;
+        return new IOException(cause);
+    }
+
+    private boolean isRetryable(HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (!RETRYABLE_STATUSES.contains(status)) return false;
+        // Out of quota is not going to clear up by retrying
+        return !(status == 429 && "insufficient_quota".equals(errorNode(response.body()).path("code").asText(null)));
+    }
+
+    /** Retry-After (seconds or HTTP date) when present, else initial * 2^(attempt-1) with full jitter, capped. */
+    private Duration backoff(int attempt, HttpResponse<String> response) {
+        if (response != null) {
+            Duration retryAfter = retryAfter(response);
+            if (retryAfter != null) return retryAfter;
+        }
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+    }
+
+    private static Duration retryAfter(HttpResponse<String> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Duration.ofSeconds(Math.max(Long.parseLong(value.trim()), 0));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private ChatCompletion parse(String body) {
+        if (body == null || body.isBlank()) {
+            log.warn("OpenAI API returned empty body");
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "OpenAI API returned empty response");
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "OpenAI returned invalid JSON");
+        }
+        JsonNode error = root.path("error");
+        if (!error.isMissingNode()) {
+            String errMsg = error.path("message").asText("Unknown OpenAI error");
+            log.warn("OpenAI API error payload: {}", errMsg);
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "OpenAI: " + errMsg);
+        }
+        JsonNode choices = root.path("choices");
+        if (choices.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "OpenAI returned no completion");
+        }
+        String content = choices.get(0).path("message").path("content").asText(null);
+        if (content == null || content.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "OpenAI returned empty content");
+        }
+        JsonNode usage = root.path("usage");
+        return new ChatCompletion(content.trim(),
+                usage.path("prompt_tokens").asInt(0),
+                usage.path("completion_tokens").asInt(0),
+                usage.path("total_tokens").asInt(0));
+    }
+
+    private JsonNode errorNode(String body) {
+        if (body == null || body.isBlank()) return objectMapper.missingNode();
+        try {
+            return objectMapper.readTree(body).path("error");
+        } catch (IOException e) {
+            return objectMapper.missingNode();
+        }
+    }
+
+    private String errorMessage(String body, int status) {
+        JsonNode error = errorNode(body);
+        if (error.isMissingNode()) {
+            return body != null && !body.isBlank() && body.length() <= 300
+                    ? body.replaceAll("\\s+", " ").trim()
+                    : "OpenAI: " + status;
+        }
+        String code = error.path("code").asText(null);
+        String message = error.path("message").asText("").trim();
+        if ("insufficient_quota".equals(code) || (status == 429 && message.toLowerCase().contains("quota"))) {
+            return "OpenAI quota exceeded. Check your plan and billing: https://platform.openai.com/account/billing";
+        }
+        return message.length() <= 300 ? message : message.substring(0, 297) + "...";
+    }
+
+    private void rejected(String document, String reason) {
+        Counter.builder("openai.rejected")
+                .description("OpenAI calls refused locally without a request")
+                .tag("document", document)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private DistributionSummary tokenSummary(String document, String type) {
+        return DistributionSummary.builder("openai.tokens")
+                .description("Tokens reported in the OpenAI usage node per completion")
+                .tag("document", document)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /** Retryable failure (429/5xx/I/O) that outlasted the attempts or Retry-After budget; counts toward the circuit. */
+    private static final class TransientFailure extends RuntimeException {
+        /** Requests actually sent before giving up; fewer than maxAttempts when Retry-After was too long. */
+        final int attempts;
+
+        TransientFailure(int attempts, String message) {
+            super(message);
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * Consecutive-failure breaker: closed until failureThreshold transient failures in a row, then open for openFor;
+     * after that exactly one trial call runs (half-open) and its result closes or re-opens the circuit.
+     */
+    private static final class CircuitBreaker {
+
+        private final int failureThreshold;
+        private final long openForNanos;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        /** System.nanoTime() until which calls are rejected; 0 when closed. */
+        private final AtomicLong openUntil = new AtomicLong();
+        private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+        CircuitBreaker(int failureThreshold, Duration openFor) {
+            this.failureThreshold = Math.max(failureThreshold, 1);
+            this.openForNanos = openFor.toNanos();
+        }
+
+        boolean allowRequest() {
+            long until = openUntil.get();
+            if (until == 0) return true;
+            if (System.nanoTime() - until < 0) return false;
+            return trialInFlight.compareAndSet(false, true);
+        }
+
+        boolean isOpen() {
+            long until = openUntil.get();
+            return until != 0 && System.nanoTime() - until < 0;
+        }
+
+        void onSuccess() {
+            consecutiveFailures.set(0);
+            openUntil.set(0);
+            trialInFlight.set(false);
+        }
+
+        void onFailure() {
+            boolean trialFailed = trialInFlight.getAndSet(false);
+            if (trialFailed || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                consecutiveFailures.set(0);
+                long until = System.nanoTime() + openForNanos;
+                openUntil.set(until != 0 ? until : 1);
+            }
+        }
+
+        /** The call ended without telling us anything about OpenAI (interrupted, saturated, unexpected error); free the trial slot. */
+        void release() {
+            trialInFlight.set(false);
+        }
+    }
+}
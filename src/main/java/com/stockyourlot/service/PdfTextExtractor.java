@@ -0,0 +1,81 @@
+package com.stockyourlot.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Page-by-page text extraction bounded by a character budget, shared by the extraction services. Pages are stripped
+ * one at a time and stripping stops once the budget is filled, so a 40-page auction packet does not pay for pages
+ * the prompt would drop. Pages with a VIN-like token go first in the result, since they carry the vehicle details.
+ */
+final class PdfTextExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfTextExtractor.class);
+
+    /** 17 VIN characters (no I, O or Q) mixing letters and digits, not part of a longer token. */
+    static final Pattern VIN_PATTERN = Pattern.compile(
+            "(?<![A-Z0-9])(?=[A-HJ-NPR-Z0-9]*[0-9])(?=[A-HJ-NPR-Z0-9]*[A-HJ-NPR-Z])[A-HJ-NPR-Z0-9]{17}(?![A-Z0-9])");
+    /** Once the budget is full, how many more pages to read looking for one with a VIN. */
+    private static final int MAX_EXTRA_PAGES_FOR_VIN = 5;
+
+    private PdfTextExtractor() {}
+
+    /**
+     * Returns up to maxChars of trimmed text (plus a truncation marker): VIN pages first, then the rest in page order.
+     */
+    static String extractText(SpooledPdf pdf, int maxChars) {
+        List<String> vinPages = new ArrayList<>();
+        List<String> otherPages = new ArrayList<>();
+        int pagesRead = 0;
+        int pageCount;
+        try (PDDocument doc = pdf.load()) {
+            pageCount = doc.getNumberOfPages();
+            PDFTextStripper stripper = new PDFTextStripper();
+            long chars = 0;
+            int budgetFilledAt = -1;
+            for (int page = 1; page <= pageCount; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(doc);
+                pagesRead = page;
+                if (text.isBlank()) continue;
+                if (VIN_PATTERN.matcher(text).find()) {
+                    vinPages.add(text);
+                } else {
+                    otherPages.add(text);
+                }
+                chars += text.length();
+                if (chars >= maxChars && budgetFilledAt < 0) {
+                    budgetFilledAt = page;
+                }
+                if (budgetFilledAt > 0 && (!vinPages.isEmpty() || page - budgetFilledAt >= MAX_EXTRA_PAGES_FOR_VIN)) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to extract text from PDF", e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not extract text from PDF. The file may be scanned/image-only or corrupted.");
+        }
+        log.debug("Extracted text from {} of {} PDF pages ({} with a VIN)", pagesRead, pageCount, vinPages.size());
+
+        StringBuilder sb = new StringBuilder();
+        for (String page : vinPages) sb.append(page).append('\n');
+        for (String page : otherPages) sb.append(page).append('\n');
+        String text = sb.toString().trim();
+        if (text.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No text could be extracted from the PDF (e.g. image-only/scanned document).");
+        }
+        if (text.length() > maxChars || pagesRead < pageCount) {
+            text = text.substring(0, Math.min(text.length(), maxChars)) + "... [truncated]";
+        }
+        return text;
+    }
+}
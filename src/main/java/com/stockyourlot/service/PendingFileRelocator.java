@@ -0,0 +1,114 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.entity.FileMetadata;
+import com.stockyourlot.repository.FileMetadataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves claimed files from pending/{uploadToken}/... to their purchase path with a server-side GCS copy, after the
+ * purchase transaction has committed. Order is copy, repoint the row, delete the source, so the metadata always
+ * references an existing object; a failed move leaves the file downloadable at its pending path and the scheduled
+ * sweep retries it later.
+ */
+@Component
+public class PendingFileRelocator {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingFileRelocator.class);
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final GcsFileStorageService gcsFileStorageService;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+
+    public PendingFileRelocator(FileMetadataRepository fileMetadataRepository,
+                                GcsFileStorageService gcsFileStorageService,
+                                @Value("${app.files.relocate.max-attempts:3}") int maxAttempts,
+                                @Value("${app.files.relocate.initial-backoff-ms:500}") long initialBackoffMs) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.gcsFileStorageService = gcsFileStorageService;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+    }
+
+    /**
+     * Relocates the given files in the background, retrying each with exponential backoff.
+     */
+    @Async
+    public void relocate(List<UUID> fileIds) {
+        for (UUID fileId : fileIds) {
+            relocateWithRetry(fileId);
+        }
+    }
+
+    /**
+     * Picks up claimed files still under pending/ (e.g. the instance stopped before the move, or all retries failed).
+     */
+    @Scheduled(fixedDelayString = "${app.files.relocate.sweep-interval-ms:600000}",
+            initialDelayString = "${app.files.relocate.sweep-interval-ms:600000}")
+    public void relocateStragglers() {
+        if (!gcsFileStorageService.isBucketConfigured()) return;
+        List<UUID> ids = fileMetadataRepository.findClaimedIdsWithPathPrefix(
+                GcsFileStorageService.PENDING_PREFIX, Instant.now().minus(Duration.ofMinutes(5)),
+                PageRequest.of(0, SWEEP_BATCH_SIZE));
+        if (!ids.isEmpty()) {
+            log.info("relocateStragglers: retrying {} claimed file(s) still at pending path", ids.size());
+            ids.forEach(this::relocateWithRetry);
+        }
+    }
+
+    private void relocateWithRetry(UUID fileId) {
+        long backoffMs = initialBackoffMs;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                relocateOnce(fileId);
+                return;
+            } catch (Exception e) {
+                if (attempt == maxAttempts) {
+                    log.error("relocate: giving up on fileId={} after {} attempts; file stays at pending path", fileId, attempt, e);
+                    return;
+                }
+                log.warn("relocate: attempt {} failed for fileId={}: {}", attempt, fileId, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs *= 2;
+            }
+        }
+    }
+
+    private void relocateOnce(UUID fileId) {
+        FileMetadata meta = fileMetadataRepository.findWithPurchaseAndDealershipById(fileId).orElse(null);
+        if (meta == null) return;
+        String currentPath = meta.getObjectPath();
+        if (currentPath == null || !currentPath.startsWith(GcsFileStorageService.PENDING_PREFIX)) return;
+
+        String finalPath = FileMetadataService.buildObjectPathForPurchase(
+                meta.getDealership(), meta.getPurchase().getVin(), meta.getFileType());
+        Long generation = gcsFileStorageService.copy(currentPath, finalPath);
+        if (generation == null) {
+            log.warn("relocate: pending object missing for fileId={}, objectPath={}", fileId, currentPath);
+            return;
+        }
+        if (fileMetadataRepository.updateObjectPath(fileId, currentPath, finalPath, generation, Instant.now()) == 1) {
+            gcsFileStorageService.delete(currentPath);
+            log.debug("relocate: fileId={} moved {} -> {}", fileId, currentPath, finalPath);
+        } else {
+            log.info("relocate: fileId={} was relocated concurrently; leaving objects as they are", fileId);
+        }
+    }
+}
@@ -9,9 +9,10 @@ import com.stockyourlot.entity.*;
 import com.stockyourlot.repository.DealerPremiumRepository;
 import com.stockyourlot.repository.PremiumRuleRepository;
 import com.stockyourlot.repository.PurchasePremiumRepository;
-import com.stockyourlot.repository.PurchaseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,8 +20,13 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -34,17 +40,27 @@ public class PremiumService {
 
     private final PremiumRuleRepository premiumRuleRepository;
     private final DealerPremiumRepository dealerPremiumRepository;
-    private final PurchaseRepository purchaseRepository;
     private final PurchasePremiumRepository purchasePremiumRepository;
+    private final DealershipRollupService dealershipRollupService;
+    private final EffectiveRuleIndex<ActivePremium> ruleIndex;
+
+    /** ACTIVE dealer premium assignment with its rule terms, as held in the rule index. */
+    public record ActivePremium(UUID id, UUID ruleId, int level, LocalDate startDate, LocalDate endDate,
+                                Integer numberOfSales, PremiumType premiumType, BigDecimal amount)
+            implements EffectiveRuleIndex.Assignment {}
 
     public PremiumService(PremiumRuleRepository premiumRuleRepository,
                           DealerPremiumRepository dealerPremiumRepository,
-                          PurchaseRepository purchaseRepository,
-                          PurchasePremiumRepository purchasePremiumRepository) {
+                          PurchasePremiumRepository purchasePremiumRepository,
+                          DealershipRollupService dealershipRollupService,
+                          @Value("${app.rules.index.max-owners:10000}") long indexMaxOwners,
+                          @Value("${app.rules.index.ttl-seconds:300}") long indexTtlSeconds,
+                          MeterRegistry meterRegistry) {
         this.premiumRuleRepository = premiumRuleRepository;
         this.dealerPremiumRepository = dealerPremiumRepository;
-        this.purchaseRepository = purchaseRepository;
         this.purchasePremiumRepository = purchasePremiumRepository;
+        this.dealershipRollupService = dealershipRollupService;
+        this.ruleIndex = new EffectiveRuleIndex<>("premium", indexMaxOwners, Duration.ofSeconds(indexTtlSeconds), meterRegistry);
     }
 
     @Transactional(readOnly = true)
@@ -72,6 +88,7 @@ public class PremiumService {
         if (request.amount() != null) rule.setAmount(request.amount());
         if (request.premiumType() != null) rule.setPremiumType(request.premiumType());
         rule = premiumRuleRepository.save(rule);
+        ruleIndex.invalidateAll();
         return new PremiumRuleResponse(rule.getId(), rule.getRuleName(), rule.getAmount(), rule.getPremiumType());
     }
 
@@ -81,10 +98,13 @@ public class PremiumService {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Premium rule not found: " + id);
         }
         premiumRuleRepository.deleteById(id);
+        ruleIndex.invalidateAll();
     }
 
     @Transactional
     public Optional<String> assignDealerPremiumRules(Dealership dealership, List<DealerPremiumRuleInput> inputs) {
+        // Callers may have just deleted the dealership's assignments, so invalidate even when nothing is added
+        ruleIndex.invalidate(dealership.getId());
         if (inputs == null || inputs.isEmpty()) {
             return Optional.empty();
         }
@@ -102,6 +122,7 @@ public class PremiumService {
             dp.setNumberOfSales(input.numberOfSales());
             dealerPremiumRepository.save(dp);
         }
+        dealerPremiumRepository.recomputeSalesCounts(dealership.getId());
         return Optional.empty();
     }
 
@@ -124,7 +145,10 @@ public class PremiumService {
         dp.setEndDate(input.endDate());
         dp.setLevel(level);
         dp.setNumberOfSales(input.numberOfSales());
-        return dealerPremiumRepository.save(dp);
+        ruleIndex.invalidate(dealership.getId());
+        dp = dealerPremiumRepository.save(dp);
+        dealerPremiumRepository.recomputeSalesCounts(dealership.getId());
+        return dp;
     }
 
     /**
@@ -138,7 +162,12 @@ public class PremiumService {
         if (request.endDate() != null) dp.setEndDate(request.endDate());
         if (request.level() != null && request.level() >= 0) dp.setLevel(request.level());
         if (request.numberOfSales() != null) dp.setNumberOfSales(request.numberOfSales());
-        return dealerPremiumRepository.save(dp);
+        ruleIndex.invalidate(dealershipId);
+        dp = dealerPremiumRepository.save(dp);
+        if (request.startDate() != null) {
+            dealerPremiumRepository.recomputeSalesCounts(dealershipId);
+        }
+        return dp;
     }
 
     /**
@@ -149,15 +178,24 @@ public class PremiumService {
         DealerPremium dp = dealerPremiumRepository.findByDealership_IdAndId(dealershipId, premiumId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dealer premium not found: " + premiumId));
         dealerPremiumRepository.delete(dp);
+        ruleIndex.invalidate(dealershipId);
     }
 
+    /**
+     * Returns the effective premium assignment for a dealership on a date (highest active level whose range
+     * contains it). Served from the rule index.
+     */
     @Transactional(readOnly = true)
-    public Optional<DealerPremium> getEffectiveRuleForDealership(UUID dealershipId, LocalDate asOfDate) {
-        List<DealerPremium> active = dealerPremiumRepository.findByDealership_IdAndStatusWithRuleOrderByLevelDesc(dealershipId, DealerPremiumStatus.ACTIVE);
-        return active.stream()
-                .filter(dp -> !asOfDate.isBefore(dp.getStartDate()))
-                .filter(dp -> dp.getEndDate() == null || !asOfDate.isAfter(dp.getEndDate()))
-                .findFirst();
+    public Optional<ActivePremium> getEffectiveRuleForDealership(UUID dealershipId, LocalDate asOfDate) {
+        return ruleIndex.effective(dealershipId, asOfDate, this::loadActive);
+    }
+
+    private List<ActivePremium> loadActive(UUID dealershipId) {
+        return dealerPremiumRepository.findByDealership_IdAndStatusWithRuleOrderByLevelDesc(dealershipId, DealerPremiumStatus.ACTIVE)
+                .stream()
+                .map(dp -> new ActivePremium(dp.getId(), dp.getRule().getId(), dp.getLevel(), dp.getStartDate(),
+                        dp.getEndDate(), dp.getNumberOfSales(), dp.getRule().getPremiumType(), dp.getRule().getAmount()))
+                .toList();
     }
 
     @Transactional
@@ -166,20 +204,56 @@ public class PremiumService {
         if (dealership == null) return;
         UUID dealershipId = dealership.getId();
         LocalDate purchaseDate = purchase.getPurchaseDate();
-        Optional<DealerPremium> effective = getEffectiveRuleForDealership(dealershipId, purchaseDate);
+        Optional<ActivePremium> effective = getEffectiveRuleForDealership(dealershipId, purchaseDate);
         if (effective.isEmpty()) {
             log.debug("No effective premium rule for dealership {} on purchase date {}", dealershipId, purchaseDate);
             return;
         }
-        effective.ifPresent(dp -> {
-            BigDecimal amount = computePremiumAmount(dp.getRule().getPremiumType(),
-                    dp.getRule().getAmount(), purchase.getPurchasePrice());
-            PurchasePremium pp = new PurchasePremium(purchase, dealership, dp.getRule(), amount);
+        effective.ifPresent(ap -> {
+            BigDecimal amount = computePremiumAmount(ap.premiumType(), ap.amount(), purchase.getPurchasePrice());
+            PurchasePremium pp = new PurchasePremium(purchase, dealership, premiumRuleRepository.getReferenceById(ap.ruleId()), amount);
             purchasePremiumRepository.save(pp);
+            dealershipRollupService.recordServiceFees(List.of(pp));
         });
     }
 
-    private static BigDecimal computePremiumAmount(PremiumType type, BigDecimal ruleAmount, BigDecimal purchasePrice) {
+    /**
+     * Bulk counterpart of recordPremiumsForPurchase followed by expireDealerPremiumRulesIfApplicable, for one
+     * dealership's already persisted purchases in creation order. Same in-memory walk as the commission variant:
+     * one assignment load, then one recount and one expiry update.
+     */
+    @Transactional
+    public void recordPremiumsForPurchases(Dealership dealership, List<Purchase> purchases) {
+        if (purchases.isEmpty()) return;
+        UUID dealershipId = dealership.getId();
+        List<DealerPremium> active = new ArrayList<>(
+                dealerPremiumRepository.findByDealership_IdAndStatusWithRuleOrderByLevelDesc(dealershipId, DealerPremiumStatus.ACTIVE));
+        Map<UUID, Integer> salesCounts = new HashMap<>();
+        active.forEach(dp -> salesCounts.put(dp.getId(), dp.getSalesCount()));
+        List<PurchasePremium> premiums = new ArrayList<>();
+        LocalDate latest = null;
+        for (Purchase purchase : purchases) {
+            LocalDate date = purchase.getPurchaseDate();
+            active.stream()
+                    .filter(dp -> !date.isBefore(dp.getStartDate()) && (dp.getEndDate() == null || !date.isAfter(dp.getEndDate())))
+                    .findFirst()
+                    .ifPresent(dp -> premiums.add(new PurchasePremium(purchase, dealership, dp.getRule(),
+                            computePremiumAmount(dp.getRule().getPremiumType(), dp.getRule().getAmount(), purchase.getPurchasePrice()))));
+            active.stream()
+                    .filter(dp -> !dp.getStartDate().isAfter(date))
+                    .forEach(dp -> salesCounts.merge(dp.getId(), 1, Integer::sum));
+            active.removeIf(dp -> (dp.getEndDate() != null && dp.getEndDate().isBefore(date))
+                    || (dp.getNumberOfSales() != null && salesCounts.get(dp.getId()) >= dp.getNumberOfSales()));
+            if (latest == null || date.isAfter(latest)) latest = date;
+        }
+        purchasePremiumRepository.saveAll(premiums);
+        dealershipRollupService.recordServiceFees(premiums);
+        dealerPremiumRepository.recomputeSalesCounts(dealershipId);
+        dealerPremiumRepository.expireReached(dealershipId, latest, Instant.now());
+        ruleIndex.invalidate(dealershipId);
+    }
+
+    static BigDecimal computePremiumAmount(PremiumType type, BigDecimal ruleAmount, BigDecimal purchasePrice) {
         if (type == PremiumType.FLAT) {
             return ruleAmount != null ? ruleAmount : BigDecimal.ZERO;
         }
@@ -187,24 +261,25 @@ public class PremiumService {
         return purchasePrice.multiply(ruleAmount).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
     }
 
+    /**
+     * Call once after a purchase is created (after recordPremiumsForPurchase). Counts the sale on the dealership's
+     * active assignments that had started by the purchase date, then expires assignments past end_date or whose
+     * sales counter reached number_of_sales.
+     */
     @Transactional
     public void expireDealerPremiumRulesIfApplicable(UUID dealershipId, LocalDate purchaseDate) {
-        List<DealerPremium> active = dealerPremiumRepository.findByDealership_IdAndStatusOrderByLevelDesc(dealershipId, DealerPremiumStatus.ACTIVE);
-        for (DealerPremium dp : active) {
-            boolean expired = false;
-            if (dp.getEndDate() != null && purchaseDate.isAfter(dp.getEndDate())) {
-                expired = true;
-            } else if (dp.getNumberOfSales() != null) {
-                long count = purchaseRepository.countByDealership_IdAndPurchaseDateBetween(
-                        dealershipId, dp.getStartDate(), purchaseDate);
-                if (count >= dp.getNumberOfSales()) {
-                    expired = true;
-                }
-            }
-            if (expired) {
-                dp.setStatus(DealerPremiumStatus.EXPIRED);
-                dealerPremiumRepository.save(dp);
-            }
+        dealerPremiumRepository.incrementSalesCount(dealershipId, purchaseDate);
+        if (dealerPremiumRepository.expireReached(dealershipId, purchaseDate, Instant.now()) > 0) {
+            ruleIndex.invalidate(dealershipId);
         }
     }
+
+    /**
+     * Recounts the sales counters of the dealership's active assignments from purchase history. Call when a
+     * purchase's date or dealership changes, or when an assignment's start date changes.
+     */
+    @Transactional
+    public void recomputeSalesCounts(UUID dealershipId) {
+        dealerPremiumRepository.recomputeSalesCounts(dealershipId);
+    }
 }
@@ -0,0 +1,125 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.dto.AnalyticsBucket;
+import com.stockyourlot.dto.AnalyticsGroupBy;
+import com.stockyourlot.dto.PurchaseAnalyticsResponse;
+import com.stockyourlot.dto.PurchaseAnalyticsRow;
+import jakarta.persistence.EntityManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Time-bucketed purchase aggregates computed in Postgres. The purchase-date range is served by the covering index
+ * from V31 (which includes p.id for the commission/premium lookups) and commission/premium totals per purchase by
+ * their (purchase_id) INCLUDE (amount) indexes, so all three can be index-only scans; they skip the heap for pages
+ * the visibility map marks all-visible, i.e. once autovacuum has caught up. Bucket and dimension come from enums
+ * and are the only SQL fragments that are not bind parameters.
+ */
+@Service
+public class PurchaseAnalyticsService {
+
+    /** Longest accepted range; DAY buckets over it are still a few thousand rows per group. */
+    private static final long MAX_RANGE_DAYS = 5 * 366;
+
+    private final EntityManager entityManager;
+
+    public PurchaseAnalyticsService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Aggregates purchases dated within [startDate, endDate]. endDate defaults to today and startDate to one year
+     * before endDate.
+     */
+    @Transactional(readOnly = true)
+    public PurchaseAnalyticsResponse getPurchaseAnalytics(AnalyticsBucket bucket, AnalyticsGroupBy groupBy,
+                                                          LocalDate startDate, LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end.minusYears(1).plusDays(1);
+        if (start.isAfter(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "startDate must not be after endDate");
+        }
+        if (ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Date range must not exceed " + MAX_RANGE_DAYS + " days");
+        }
+        String bucketExpr = "CAST(date_trunc('" + bucket.name().toLowerCase() + "', p.purchase_date) AS DATE)";
+        String keyExpr;
+        String labelExpr;
+        String labelJoin;
+        switch (groupBy) {
+            case DEALERSHIP -> {
+                keyExpr = "CAST(p.dealership_id AS VARCHAR)";
+                labelExpr = "MAX(d.name)";
+                labelJoin = "LEFT JOIN dealerships d ON d.id = p.dealership_id ";
+            }
+            case BUYER -> {
+                keyExpr = "CAST(p.buyer_id AS VARCHAR)";
+                labelExpr = "MAX(u.email)";
+                labelJoin = "LEFT JOIN users u ON u.id = p.buyer_id ";
+            }
+            case AUCTION_PLATFORM -> {
+                keyExpr = "p.auction_platform";
+                labelExpr = keyExpr;
+                labelJoin = "";
+            }
+            case MAKE -> {
+                keyExpr = "p.vehicle_make";
+                labelExpr = keyExpr;
+                labelJoin = "";
+            }
+            default -> throw new IllegalStateException("Unhandled group: " + groupBy);
+        }
+        String sql = "SELECT " + bucketExpr + ", " + keyExpr + ", " + labelExpr + ", COUNT(*), " +
+                "COALESCE(SUM(p.purchase_price), 0), AVG(p.purchase_price), " +
+                "COALESCE(SUM(p.transport_quote), 0), AVG(p.transport_quote), " +
+                "COALESCE(SUM(pc.amount), 0), AVG(COALESCE(pc.amount, 0)), " +
+                "COALESCE(SUM(pp.amount), 0), AVG(COALESCE(pp.amount, 0)) " +
+                "FROM purchases p " + labelJoin +
+                "LEFT JOIN LATERAL (SELECT SUM(c.amount) AS amount FROM purchase_commission c WHERE c.purchase_id = p.id) pc ON TRUE " +
+                "LEFT JOIN LATERAL (SELECT SUM(f.amount) AS amount FROM purchase_premium f WHERE f.purchase_id = p.id) pp ON TRUE " +
+                "WHERE p.purchase_date >= :startDate AND p.purchase_date <= :endDate " +
+                "GROUP BY " + bucketExpr + ", " + keyExpr + " " +
+                "ORDER BY 1, 2";
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(sql)
+                .setParameter("startDate", start)
+                .setParameter("endDate", end)
+                .getResultList();
+        return new PurchaseAnalyticsResponse(bucket, groupBy, start, end, rows.stream().map(PurchaseAnalyticsService::toRow).toList());
+    }
+
+    private static PurchaseAnalyticsRow toRow(Object[] row) {
+        return new PurchaseAnalyticsRow(
+                toLocalDate(row[0]),
+                row[1] != null ? row[1].toString() : null,
+                row[2] != null ? row[2].toString() : null,
+                ((Number) row[3]).longValue(),
+                money(row[4]),
+                money(row[5]),
+                money(row[6]),
+                money(row[7]),
+                money(row[8]),
+                money(row[9]),
+                money(row[10]),
+                money(row[11]));
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static BigDecimal money(Object value) {
+        if (value == null) return null;
+        BigDecimal amount = value instanceof BigDecimal bd ? bd : new BigDecimal(value.toString());
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,59 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.dto.PurchaseCommissionItemDto;
+import com.stockyourlot.dto.PurchaseResponse;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Formats purchases as CSV lines (RFC 4180 quoting) for the streaming export.
+ * Commission lines are flattened to a total amount.
+ */
+final class PurchaseCsvFormatter {
+
+    static final String HEADER = String.join(",",
+            "id", "buyerId", "buyerUsername", "buyerEmail", "dealershipId", "dealershipName", "date", "status",
+            "auctionPlatform", "vin", "miles", "purchasePrice", "vehicleYear", "vehicleMake", "vehicleModel",
+            "vehicleTrimLevel", "transportQuote", "createdAt", "billOfSaleFileId", "conditionReportFileId",
+            "totalCommission", "serviceFee");
+
+    private PurchaseCsvFormatter() {}
+
+    static String toLine(PurchaseResponse p) {
+        return List.of(
+                        value(p.id()), value(p.buyerId()), value(p.buyerUsername()), value(p.buyerEmail()),
+                        value(p.dealershipId()), value(p.dealershipName()), value(p.date()), value(p.status()),
+                        value(p.auctionPlatform()), value(p.vin()), value(p.miles()), value(p.purchasePrice()),
+                        value(p.vehicleYear()), value(p.vehicleMake()), value(p.vehicleModel()),
+                        value(p.vehicleTrimLevel()), value(p.transportQuote()), value(p.createdAt()),
+                        value(p.billOfSaleFileId()), value(p.conditionReportFileId()),
+                        value(totalCommission(p.commissions())), value(p.serviceFee()))
+                .stream()
+                .map(PurchaseCsvFormatter::escape)
+                .collect(Collectors.joining(","));
+    }
+
+    private static BigDecimal totalCommission(List<PurchaseCommissionItemDto> commissions) {
+        if (commissions == null) return BigDecimal.ZERO;
+        return commissions.stream()
+                .map(PurchaseCommissionItemDto::amount)
+                .filter(Objects::nonNull)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static String value(Object o) {
+        if (o == null) return "";
+        if (o instanceof BigDecimal bd) return bd.toPlainString();
+        return o.toString();
+    }
+
+    private static String escape(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,42 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.dto.PurchaseRow;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in the purchase list (ordered by created_at DESC, id DESC). Encoded as an opaque
+ * base64url token so clients only pass it back; the next page starts strictly after this position.
+ */
+public record PurchaseCursor(Instant createdAt, UUID id) {
+
+    public static PurchaseCursor of(PurchaseRow row) {
+        return new PurchaseCursor(row.createdAt(), row.id());
+    }
+
+    public String encode() {
+        String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}. Returns null for a null/blank token (first page).
+     * @throws ResponseStatusException 400 if the token is malformed
+     */
+    public static PurchaseCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new PurchaseCursor(createdAt, UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
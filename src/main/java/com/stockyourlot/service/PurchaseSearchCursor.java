@@ -0,0 +1,35 @@
+package com.stockyourlot.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in full-text search results (ordered by rank DESC, id DESC). Same opaque base64url encoding as
+ * {@link PurchaseCursor}; the rank round-trips exactly because it is the float Postgres returned.
+ */
+public record PurchaseSearchCursor(float rank, UUID id) {
+
+    public String encode() {
+        String raw = Float.toString(rank) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}. Returns null for a null/blank token (first page).
+     * @throws ResponseStatusException 400 if the token is malformed
+     */
+    public static PurchaseSearchCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            return new PurchaseSearchCursor(Float.parseFloat(parts[0]), UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.stockyourlot.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockyourlot.dto.BulkCreatePurchasesResponse;
+import com.stockyourlot.dto.BulkPurchaseRowResult;
 import com.stockyourlot.dto.CreatePurchaseRequest;
 import com.stockyourlot.dto.PurchaseCommissionItemDto;
+import com.stockyourlot.dto.PurchaseCommissionRow;
+import com.stockyourlot.dto.PurchaseExportFormat;
+import com.stockyourlot.dto.PurchasePageResponse;
 import com.stockyourlot.dto.PurchaseResponse;
+import com.stockyourlot.dto.PurchaseRow;
 import com.stockyourlot.dto.UpdatePurchaseRequest;
+import com.stockyourlot.dto.VinMatchMode;
 import com.stockyourlot.entity.Dealership;
 import com.stockyourlot.entity.Purchase;
-import com.stockyourlot.entity.PurchaseCommission;
 import com.stockyourlot.entity.PurchaseStatus;
 import com.stockyourlot.entity.User;
 import com.stockyourlot.service.FileMetadataService.BillAndConditionReportFileIds;
@@ -14,19 +21,37 @@ import com.stockyourlot.repository.DealershipRepository;
 import com.stockyourlot.repository.PurchaseCommissionRepository;
 import com.stockyourlot.repository.PurchasePremiumRepository;
 import com.stockyourlot.repository.PurchaseRepository;
-import org.springframework.data.domain.Sort;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PurchaseService {
@@ -38,12 +63,21 @@ public class PurchaseService {
     private final FileMetadataService fileMetadataService;
     private final CommissionService commissionService;
     private final PremiumService premiumService;
+    private final DealershipRollupService dealershipRollupService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final Timer createTimer;
+    private final Timer createBulkTimer;
+    private final Counter purchasesCreated;
 
     public PurchaseService(PurchaseRepository purchaseRepository, DealershipRepository dealershipRepository,
                            PurchaseCommissionRepository purchaseCommissionRepository,
                            PurchasePremiumRepository purchasePremiumRepository,
                            FileMetadataService fileMetadataService, CommissionService commissionService,
-                           PremiumService premiumService) {
+                           PremiumService premiumService, DealershipRollupService dealershipRollupService,
+                           EntityManager entityManager, ObjectMapper objectMapper, Validator validator,
+                           MeterRegistry meterRegistry) {
         this.purchaseRepository = purchaseRepository;
         this.dealershipRepository = dealershipRepository;
         this.purchaseCommissionRepository = purchaseCommissionRepository;
@@ -51,68 +85,372 @@ public class PurchaseService {
         this.fileMetadataService = fileMetadataService;
         this.commissionService = commissionService;
         this.premiumService = premiumService;
+        this.dealershipRollupService = dealershipRollupService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.createTimer = Timer.builder("purchase.create").tag("mode", "single").register(meterRegistry);
+        this.createBulkTimer = Timer.builder("purchase.create").tag("mode", "bulk").register(meterRegistry);
+        this.purchasesCreated = Counter.builder("purchase.created")
+                .description("Purchases inserted through single or bulk create")
+                .register(meterRegistry);
     }
 
+    /** Default and maximum number of purchases returned per list page. */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    /** Purchases enriched (files, commissions, service fees) and written per batch during export. */
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    /** Separators between full-text search terms; anything but letters and digits, so no tsquery syntax gets through. */
+    private static final Pattern SEARCH_TERM_SEPARATOR = Pattern.compile("[^\\p{Alnum}]+");
+    /** VIN characters (letters and digits); also keeps LIKE wildcards out of search terms. */
+    private static final Pattern VIN_SEARCH_TERM = Pattern.compile("[A-Z0-9]{3,17}");
+    private static final BillAndConditionReportFileIds NO_FILE_IDS = new BillAndConditionReportFileIds(null, null);
+
     @Transactional(readOnly = true)
     public PurchaseResponse getById(UUID id) {
-        Purchase p = purchaseRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Purchase not found: " + id));
-        Map<UUID, BillAndConditionReportFileIds> fileIdsMap = fileMetadataService.getBillAndConditionReportFileIdsByPurchaseIds(List.of(p.getId()));
-        List<PurchaseCommissionItemDto> commissions = purchaseCommissionRepository.findByPurchase_IdOrderByCreatedAtAsc(p.getId())
-                .stream()
-                .map(pc -> new PurchaseCommissionItemDto(
-                        pc.getUser().getId(),
-                        pc.getUser().getUsername(),
-                        pc.getRule() != null ? pc.getRule().getId() : null,
-                        pc.getRule() != null ? pc.getRule().getRuleName() : null,
-                        pc.getAmount()))
-                .toList();
-        BigDecimal serviceFee = purchasePremiumRepository.findByPurchase_IdOrderByCreatedAtAsc(p.getId())
-                .stream()
-                .map(pp -> pp.getAmount() != null ? pp.getAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return toResponse(p, fileIdsMap.getOrDefault(p.getId(), new BillAndConditionReportFileIds(null, null)), commissions, serviceFee);
+        List<PurchaseRow> rows = purchaseRepository.findRowsByIdIn(List.of(id));
+        if (rows.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Purchase not found: " + id);
+        }
+        return toResponseListWithFileIds(rows).get(0);
     }
 
-    private static final Sort DEFAULT_PURCHASE_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+    /**
+     * All purchases (all buyers), newest first, one keyset page at a time. Optional date range on purchase date
+     * (inclusive). Pass the previous page's nextCursor to continue.
+     */
+    @Transactional(readOnly = true)
+    public PurchasePageResponse getAll(LocalDate startDate, LocalDate endDate, String cursor, Integer limit) {
+        PurchaseCursor after = PurchaseCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+        List<PurchaseRow> purchases = purchaseRepository.findPage(startDate, endDate,
+                after != null ? after.createdAt() : null, after != null ? after.id() : null,
+                PageRequest.of(0, pageSize + 1));
+        return toPage(purchases, pageSize);
+    }
 
     @Transactional(readOnly = true)
-    public List<PurchaseResponse> getAll(LocalDate startDate, LocalDate endDate) {
-        List<Purchase> purchases;
-        if (startDate != null && endDate != null) {
-            purchases = purchaseRepository.findByPurchaseDateBetween(startDate, endDate, DEFAULT_PURCHASE_SORT);
-        } else if (startDate != null) {
-            purchases = purchaseRepository.findByPurchaseDateGreaterThanEqual(startDate, DEFAULT_PURCHASE_SORT);
-        } else if (endDate != null) {
-            purchases = purchaseRepository.findByPurchaseDateLessThanEqual(endDate, DEFAULT_PURCHASE_SORT);
-        } else {
-            purchases = purchaseRepository.findAll(DEFAULT_PURCHASE_SORT);
+    public PurchasePageResponse getByBuyerId(UUID buyerId, String cursor, Integer limit) {
+        PurchaseCursor after = PurchaseCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+        List<PurchaseRow> purchases = purchaseRepository.findPageByBuyerId(buyerId,
+                after != null ? after.createdAt() : null, after != null ? after.id() : null,
+                PageRequest.of(0, pageSize + 1));
+        return toPage(purchases, pageSize);
+    }
+
+    /**
+     * Purchases by VIN, newest first: EXACT on the full VIN, PREFIX or SUFFIX (e.g. last 6) on at least 3
+     * characters. Case-insensitive; every mode is served by an index on UPPER(vin) or its reverse.
+     */
+    @Transactional(readOnly = true)
+    public List<PurchaseResponse> searchByVin(String term, VinMatchMode match, Integer limit) {
+        String vin = normalizeVin(term);
+        if (vin == null || !VIN_SEARCH_TERM.matcher(vin).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "vin must be 3 to 17 letters or digits");
         }
+        PageRequest page = PageRequest.of(0, resolvePageSize(limit));
+        List<PurchaseRow> purchases = switch (match) {
+            case EXACT -> purchaseRepository.findByNormalizedVin(vin, page);
+            case PREFIX -> purchaseRepository.findByNormalizedVinLike(vin + "%", page);
+            case SUFFIX -> purchaseRepository.findByReversedNormalizedVinLike(new StringBuilder(vin).reverse() + "%", page);
+        };
         return toResponseListWithFileIds(purchases);
     }
 
+    /**
+     * Full-text search over year, make, model, trim, auction platform and VIN (e.g. "2019 Silverado LT Manheim"),
+     * best match first. Every term must match, as a word prefix. Optional filters narrow by dealership, buyer,
+     * purchase-date range (inclusive) and status. Keyset pages on (rank, id); pass nextCursor back as cursor.
+     */
     @Transactional(readOnly = true)
-    public List<PurchaseResponse> getByBuyerId(UUID buyerId) {
-        List<Purchase> purchases = purchaseRepository.findByBuyerIdOrderByCreatedAtDesc(buyerId);
-        return toResponseListWithFileIds(purchases);
+    public PurchasePageResponse search(String text, UUID dealershipId, UUID buyerId, LocalDate startDate,
+                                       LocalDate endDate, PurchaseStatus status, String cursor, Integer limit) {
+        List<String> terms = text == null ? List.of() : SEARCH_TERM_SEPARATOR.splitAsStream(text)
+                .filter(t -> !t.isEmpty())
+                .map(t -> t.toLowerCase(Locale.ROOT) + ":*")
+                .toList();
+        if (terms.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must contain at least one letter or digit");
+        }
+        PurchaseSearchCursor after = PurchaseSearchCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+        StringBuilder sql = new StringBuilder("SELECT r.id, r.rank FROM (SELECT p.id AS id, " +
+                "ts_rank(p.search_vector, to_tsquery('english', :query)) AS rank FROM purchases p " +
+                "WHERE p.search_vector @@ to_tsquery('english', :query)");
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("query", String.join(" & ", terms));
+        if (dealershipId != null) {
+            sql.append(" AND p.dealership_id = :dealershipId");
+            params.put("dealershipId", dealershipId);
+        }
+        if (buyerId != null) {
+            sql.append(" AND p.buyer_id = :buyerId");
+            params.put("buyerId", buyerId);
+        }
+        if (startDate != null) {
+            sql.append(" AND p.purchase_date >= :startDate");
+            params.put("startDate", startDate);
+        }
+        if (endDate != null) {
+            sql.append(" AND p.purchase_date <= :endDate");
+            params.put("endDate", endDate);
+        }
+        if (status != null) {
+            sql.append(" AND p.status = :status");
+            params.put("status", status.name());
+        }
+        sql.append(") r");
+        if (after != null) {
+            sql.append(" WHERE r.rank < :cursorRank OR (r.rank = :cursorRank AND r.id < :cursorId)");
+            params.put("cursorRank", after.rank());
+            params.put("cursorId", after.id());
+        }
+        sql.append(" ORDER BY r.rank DESC, r.id DESC");
+        Query query = entityManager.createNativeQuery(sql.toString()).setMaxResults(pageSize + 1);
+        params.forEach(query::setParameter);
+        @SuppressWarnings("unchecked")
+        List<Object[]> hits = query.getResultList();
+        boolean hasMore = hits.size() > pageSize;
+        List<Object[]> page = hasMore ? hits.subList(0, pageSize) : hits;
+        List<UUID> ids = page.stream().map(row -> (UUID) row[0]).toList();
+        Map<UUID, PurchaseRow> byId = purchaseRepository.findRowsByIdIn(ids).stream()
+                .collect(Collectors.toMap(PurchaseRow::id, row -> row));
+        List<PurchaseRow> purchases = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = page.get(page.size() - 1);
+            nextCursor = new PurchaseSearchCursor(((Number) last[1]).floatValue(), (UUID) last[0]).encode();
+        }
+        return new PurchasePageResponse(toResponseListWithFileIds(purchases), nextCursor);
     }
 
     @Transactional(readOnly = true)
-    public List<PurchaseResponse> getByDealershipId(UUID dealershipId) {
-        List<Purchase> purchases = purchaseRepository.findByDealership_IdOrderByCreatedAtDesc(dealershipId);
-        return toResponseListWithFileIds(purchases);
+    public PurchasePageResponse getByDealershipId(UUID dealershipId, String cursor, Integer limit) {
+        PurchaseCursor after = PurchaseCursor.decode(cursor);
+        int pageSize = resolvePageSize(limit);
+        List<PurchaseRow> purchases = purchaseRepository.findPageByDealershipId(dealershipId,
+                after != null ? after.createdAt() : null, after != null ? after.id() : null,
+                PageRequest.of(0, pageSize + 1));
+        return toPage(purchases, pageSize);
     }
 
+    /**
+     * Streams every purchase in the purchase-date range (null = open) to the output as NDJSON or CSV, newest first.
+     * Rows come from a JDBC cursor and are enriched and written in chunks of {@value #EXPORT_CHUNK_SIZE}; the
+     * persistence context is cleared after each chunk so memory stays flat regardless of the range.
+     */
+    @Transactional(readOnly = true)
+    public void export(LocalDate startDate, LocalDate endDate, PurchaseExportFormat format, OutputStream out) throws IOException {
+        if (format == PurchaseExportFormat.CSV) {
+            out.write((PurchaseCsvFormatter.HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        try (Stream<PurchaseRow> purchases = purchaseRepository.streamByPurchaseDateRange(startDate, endDate)) {
+            Iterator<PurchaseRow> it = purchases.iterator();
+            List<PurchaseRow> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !it.hasNext()) {
+                    for (PurchaseResponse response : toResponseListWithFileIds(chunk)) {
+                        writeExportLine(response, format, out);
+                    }
+                    out.flush();
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private void writeExportLine(PurchaseResponse response, PurchaseExportFormat format, OutputStream out) throws IOException {
+        if (format == PurchaseExportFormat.CSV) {
+            out.write((PurchaseCsvFormatter.toLine(response) + "\n").getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write(objectMapper.writeValueAsBytes(response));
+            out.write('\n');
+        }
+    }
+
+    private static int resolvePageSize(Integer limit) {
+        if (limit == null) return DEFAULT_PAGE_SIZE;
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Builds a page from up to pageSize + 1 rows: the extra row only signals that another page exists.
+     * File, commission and service-fee lookups cover just the returned page.
+     */
+    private PurchasePageResponse toPage(List<PurchaseRow> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<PurchaseRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? PurchaseCursor.of(page.get(page.size() - 1)).encode() : null;
+        return new PurchasePageResponse(toResponseListWithFileIds(page), nextCursor);
+    }
+
+    /** Timed as purchase.create (mode=single); the timer stops before the surrounding transaction commits. */
     @Transactional
     public PurchaseResponse create(CreatePurchaseRequest request, User buyer) {
+        return createTimer.record(() -> doCreate(request, buyer));
+    }
+
+    private PurchaseResponse doCreate(CreatePurchaseRequest request, User buyer) {
         Dealership dealership = dealershipRepository.findById(request.dealershipId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Dealership not found: " + request.dealershipId()));
+        String vin = normalizeVin(request.vin());
+        UUID duplicateOf = purchaseRepository.findIdsByNormalizedVinIn(List.of(vin)).stream()
+                .findFirst()
+                .map(row -> (UUID) row[1])
+                .orElse(null);
+        if (duplicateOf != null && Boolean.TRUE.equals(request.rejectDuplicateVin())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, duplicateVinMessage(vin, duplicateOf));
+        }
+        Purchase p = newPurchase(request, buyer, dealership);
+        p = purchaseRepository.save(p);
+        purchasesCreated.increment();
+        dealershipRollupService.recordPurchases(List.of(p));
+        if (request.uploadToken() != null) {
+            fileMetadataService.claimPendingFiles(request.uploadToken().toString(), p);
+        }
+        commissionService.recordCommissionsForPurchase(p);
+        commissionService.expireUserCommissionRulesIfApplicable(buyer.getId(), p.getPurchaseDate());
+        premiumService.recordPremiumsForPurchase(p);
+        premiumService.expireDealerPremiumRulesIfApplicable(dealership.getId(), p.getPurchaseDate());
+        Map<UUID, BillAndConditionReportFileIds> fileIdsMap = fileMetadataService.getBillAndConditionReportFileIdsByPurchaseIds(List.of(p.getId()));
+        return toResponse(PurchaseRow.of(p), fileIdsMap.getOrDefault(p.getId(), NO_FILE_IDS), List.of(), null, duplicateOf);
+    }
+
+    /**
+     * Create many purchases for the buyer in one transaction. Rows failing validation or naming an unknown
+     * dealership are reported and skipped; the rest are inserted in JDBC batches. A row repeating a VIN (already
+     * stored or earlier in the batch) is created with duplicateOfPurchaseId set, or skipped if it sets
+     * rejectDuplicateVin. Dealerships are loaded with one query and each distinct buyer/dealership resolves its
+     * rule assignments once for all of its rows.
+     */
+    @Transactional
+    public BulkCreatePurchasesResponse createBulk(List<CreatePurchaseRequest> requests, User buyer) {
+        return createBulkTimer.record(() -> doCreateBulk(requests, buyer));
+    }
+
+    private BulkCreatePurchasesResponse doCreateBulk(List<CreatePurchaseRequest> requests, User buyer) {
+        Map<UUID, Dealership> dealerships = dealershipRepository.findAllById(requests.stream()
+                        .filter(Objects::nonNull)
+                        .map(CreatePurchaseRequest::dealershipId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Dealership::getId, d -> d));
+        BulkPurchaseRowResult[] results = new BulkPurchaseRowResult[requests.size()];
+        Map<Integer, Purchase> purchasesByIndex = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreatePurchaseRequest request = requests.get(i);
+            String error = validateBulkRow(request, dealerships);
+            if (error != null) {
+                results[i] = BulkPurchaseRowResult.rejected(i, error);
+                continue;
+            }
+            purchasesByIndex.put(i, newPurchase(request, buyer, dealerships.get(request.dealershipId())));
+        }
+        Map<Integer, Object> duplicates = findDuplicateVins(requests, purchasesByIndex, results);
+        List<Purchase> purchases = purchaseRepository.saveAll(purchasesByIndex.values());
+        purchasesCreated.increment(purchases.size());
+        dealershipRollupService.recordPurchases(purchases);
+        purchasesByIndex.forEach((i, p) -> {
+            Object duplicate = duplicates.get(i);
+            UUID duplicateOf = duplicate instanceof Integer earlierIndex ? purchasesByIndex.get(earlierIndex).getId()
+                    : (UUID) duplicate;
+            results[i] = BulkPurchaseRowResult.created(i, p.getId(), duplicateOf);
+            UUID uploadToken = requests.get(i).uploadToken();
+            if (uploadToken != null) {
+                fileMetadataService.claimPendingFiles(uploadToken.toString(), p);
+            }
+        });
+        commissionService.recordCommissionsForPurchases(buyer.getId(), purchases);
+        purchases.stream()
+                .collect(Collectors.groupingBy(Purchase::getDealership, LinkedHashMap::new, Collectors.toList()))
+                .forEach(premiumService::recordPremiumsForPurchases);
+        entityManager.flush();
+        return new BulkCreatePurchasesResponse(purchases.size(), requests.size() - purchases.size(), List.of(results));
+    }
+
+    private String validateBulkRow(CreatePurchaseRequest request, Map<UUID, Dealership> dealerships) {
+        if (request == null) return "purchase must not be null";
+        Set<ConstraintViolation<CreatePurchaseRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (!dealerships.containsKey(request.dealershipId())) {
+            return "Dealership not found: " + request.dealershipId();
+        }
+        return null;
+    }
+
+    /**
+     * Finds rows whose VIN is already stored (one indexed IN query) or repeats an earlier row of the batch. Rows
+     * that set rejectDuplicateVin are dropped with an error; for the rest, the returned map holds the existing
+     * purchase id, or the index of the earlier row in the batch (its id is only known after saving).
+     */
+    private Map<Integer, Object> findDuplicateVins(List<CreatePurchaseRequest> requests,
+                                                   Map<Integer, Purchase> purchasesByIndex,
+                                                   BulkPurchaseRowResult[] results) {
+        Map<Integer, Object> duplicates = new HashMap<>();
+        if (purchasesByIndex.isEmpty()) return duplicates;
+        Map<String, UUID> existing = purchaseRepository.findIdsByNormalizedVinIn(purchasesByIndex.values().stream()
+                        .map(Purchase::getVin)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(row -> (String) row[0], row -> (UUID) row[1], (a, b) -> a));
+        Map<String, Integer> firstIndexByVin = new HashMap<>();
+        Iterator<Map.Entry<Integer, Purchase>> it = purchasesByIndex.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Purchase> entry = it.next();
+            int index = entry.getKey();
+            String vin = entry.getValue().getVin();
+            boolean reject = Boolean.TRUE.equals(requests.get(index).rejectDuplicateVin());
+            if (existing.containsKey(vin)) {
+                if (reject) {
+                    results[index] = BulkPurchaseRowResult.rejected(index, duplicateVinMessage(vin, existing.get(vin)));
+                    it.remove();
+                } else {
+                    duplicates.put(index, existing.get(vin));
+                    firstIndexByVin.putIfAbsent(vin, index);
+                }
+            } else if (firstIndexByVin.containsKey(vin)) {
+                if (reject) {
+                    results[index] = BulkPurchaseRowResult.rejected(index, "Duplicate VIN within request: " + vin);
+                    it.remove();
+                } else {
+                    duplicates.put(index, firstIndexByVin.get(vin));
+                }
+            } else {
+                firstIndexByVin.put(vin, index);
+            }
+        }
+        return duplicates;
+    }
+
+    private static String duplicateVinMessage(String vin, UUID existingPurchaseId) {
+        return "A purchase with VIN " + vin + " already exists: " + existingPurchaseId;
+    }
+
+    /** VINs are stored trimmed and upper-cased so the UPPER(vin) indexes match stored values exactly. */
+    private static String normalizeVin(String vin) {
+        return vin != null ? vin.trim().toUpperCase(Locale.ROOT) : null;
+    }
+
+    private static Purchase newPurchase(CreatePurchaseRequest request, User buyer, Dealership dealership) {
         Purchase p = new Purchase();
         p.setBuyer(buyer);
         p.setDealership(dealership);
         p.setPurchaseDate(request.date());
         p.setAuctionPlatform(request.auctionPlatform());
-        p.setVin(request.vin());
+        p.setVin(normalizeVin(request.vin()));
         p.setMiles(request.miles());
         p.setPurchasePrice(request.purchasePrice());
         p.setVehicleYear(request.vehicleYear());
@@ -121,26 +459,16 @@ public class PurchaseService {
         p.setVehicleTrimLevel(request.vehicleTrimLevel());
         p.setTransportQuote(request.transportQuote());
         p.setStatus(request.status() != null ? request.status() : PurchaseStatus.CONFIRMED);
-        p = purchaseRepository.save(p);
-        if (request.uploadToken() != null) {
-            try {
-                fileMetadataService.claimPendingFiles(request.uploadToken().toString(), p);
-            } catch (IOException e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to claim pending files: " + e.getMessage());
-            }
-        }
-        commissionService.recordCommissionsForPurchase(p);
-        commissionService.expireUserCommissionRulesIfApplicable(buyer.getId(), p.getPurchaseDate());
-        premiumService.recordPremiumsForPurchase(p);
-        premiumService.expireDealerPremiumRulesIfApplicable(dealership.getId(), p.getPurchaseDate());
-        Map<UUID, BillAndConditionReportFileIds> fileIdsMap = fileMetadataService.getBillAndConditionReportFileIdsByPurchaseIds(List.of(p.getId()));
-        return toResponse(p, fileIdsMap.getOrDefault(p.getId(), new BillAndConditionReportFileIds(null, null)), List.of(), null);
+        return p;
     }
 
     @Transactional
     public PurchaseResponse update(UUID purchaseId, UpdatePurchaseRequest request) {
         Purchase p = purchaseRepository.findById(purchaseId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Purchase not found: " + purchaseId));
+        LocalDate previousDate = p.getPurchaseDate();
+        UUID previousDealershipId = p.getDealership() != null ? p.getDealership().getId() : null;
+        BigDecimal previousPrice = p.getPurchasePrice();
         if (request.dealershipId() != null) {
             Dealership dealership = dealershipRepository.findById(request.dealershipId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Dealership not found: " + request.dealershipId()));
@@ -148,7 +476,7 @@ public class PurchaseService {
         }
         if (request.date() != null) p.setPurchaseDate(request.date());
         if (request.auctionPlatform() != null) p.setAuctionPlatform(request.auctionPlatform());
-        if (request.vin() != null) p.setVin(request.vin());
+        if (request.vin() != null) p.setVin(normalizeVin(request.vin()));
         if (request.miles() != null) p.setMiles(request.miles());
         if (request.purchasePrice() != null) p.setPurchasePrice(request.purchasePrice());
         if (request.vehicleYear() != null) p.setVehicleYear(request.vehicleYear());
@@ -158,62 +486,92 @@ public class PurchaseService {
         if (request.transportQuote() != null) p.setTransportQuote(request.transportQuote());
         if (request.status() != null) p.setStatus(request.status());
         p = purchaseRepository.save(p);
+        recomputeSalesCountsIfMoved(p, previousDate, previousDealershipId);
+        if (!Objects.equals(previousDate, p.getPurchaseDate())
+                || !Objects.equals(previousDealershipId, p.getDealership() != null ? p.getDealership().getId() : null)
+                || !Objects.equals(previousPrice, p.getPurchasePrice())) {
+            dealershipRollupService.purchaseMoved(previousDealershipId, previousDate, p);
+        }
         Map<UUID, BillAndConditionReportFileIds> fileIdsMap = fileMetadataService.getBillAndConditionReportFileIdsByPurchaseIds(List.of(p.getId()));
-        return toResponse(p, fileIdsMap.getOrDefault(p.getId(), new BillAndConditionReportFileIds(null, null)), List.of(), null);
+        return toResponse(PurchaseRow.of(p), fileIdsMap.getOrDefault(p.getId(), NO_FILE_IDS), List.of(), null);
     }
 
-    private List<PurchaseResponse> toResponseListWithFileIds(List<Purchase> purchases) {
+    /**
+     * Assignment sales counters depend on purchase date, buyer and dealership; recount the affected owners
+     * only when one of those changed.
+     */
+    private void recomputeSalesCountsIfMoved(Purchase p, LocalDate previousDate, UUID previousDealershipId) {
+        UUID dealershipId = p.getDealership() != null ? p.getDealership().getId() : null;
+        boolean dateChanged = !Objects.equals(previousDate, p.getPurchaseDate());
+        boolean dealershipChanged = !Objects.equals(previousDealershipId, dealershipId);
+        if (dateChanged) {
+            commissionService.recomputeSalesCounts(p.getBuyer().getId());
+        }
+        if (dateChanged || dealershipChanged) {
+            if (dealershipId != null) premiumService.recomputeSalesCounts(dealershipId);
+            if (dealershipChanged && previousDealershipId != null) premiumService.recomputeSalesCounts(previousDealershipId);
+        }
+    }
+
+    /**
+     * Responses for projected rows with three more statements in total (files, service fees, commission lines),
+     * however many rows there are.
+     */
+    private List<PurchaseResponse> toResponseListWithFileIds(List<PurchaseRow> purchases) {
         if (purchases.isEmpty()) return List.of();
-        List<UUID> ids = purchases.stream().map(Purchase::getId).toList();
+        List<UUID> ids = purchases.stream().map(PurchaseRow::id).toList();
         Map<UUID, BillAndConditionReportFileIds> fileIdsMap = fileMetadataService.getBillAndConditionReportFileIdsByPurchaseIds(ids);
         Map<UUID, BigDecimal> serviceFeeMap = purchasePremiumRepository.sumAmountByPurchaseIds(ids).stream()
                 .collect(Collectors.toMap(row -> (UUID) row[0], row -> (BigDecimal) row[1]));
         Map<UUID, List<PurchaseCommissionItemDto>> commissionsByPurchaseId = purchaseCommissionRepository
-                .findByPurchase_IdInWithUserAndRuleOrderByCreatedAtAsc(ids).stream()
-                .collect(Collectors.groupingBy(pc -> pc.getPurchase().getId(),
-                        Collectors.mapping(this::toCommissionItemDto, Collectors.toList())));
+                .findRowsByPurchaseIds(ids).stream()
+                .collect(Collectors.groupingBy(PurchaseCommissionRow::purchaseId,
+                        Collectors.mapping(PurchaseCommissionRow::toItem, Collectors.toList())));
+        return toResponses(purchases, fileIdsMap, commissionsByPurchaseId, serviceFeeMap);
+    }
+
+    /** In-memory step of toResponseListWithFileIds: joins the rows with the per-purchase lookups. */
+    static List<PurchaseResponse> toResponses(List<PurchaseRow> purchases,
+                                              Map<UUID, BillAndConditionReportFileIds> fileIdsMap,
+                                              Map<UUID, List<PurchaseCommissionItemDto>> commissionsByPurchaseId,
+                                              Map<UUID, BigDecimal> serviceFeeMap) {
         return purchases.stream()
-                .map(p -> toResponse(p, fileIdsMap.getOrDefault(p.getId(), new BillAndConditionReportFileIds(null, null)),
-                        commissionsByPurchaseId.getOrDefault(p.getId(), List.of()),
-                        serviceFeeMap.getOrDefault(p.getId(), BigDecimal.ZERO)))
+                .map(p -> toResponse(p, fileIdsMap.getOrDefault(p.id(), NO_FILE_IDS),
+                        commissionsByPurchaseId.getOrDefault(p.id(), List.of()),
+                        serviceFeeMap.getOrDefault(p.id(), BigDecimal.ZERO)))
                 .toList();
     }
 
-    private PurchaseCommissionItemDto toCommissionItemDto(PurchaseCommission pc) {
-        return new PurchaseCommissionItemDto(
-                pc.getUser().getId(),
-                pc.getUser().getUsername(),
-                pc.getRule() != null ? pc.getRule().getId() : null,
-                pc.getRule() != null ? pc.getRule().getRuleName() : null,
-                pc.getAmount());
+    private static PurchaseResponse toResponse(PurchaseRow p, BillAndConditionReportFileIds fileIds, List<PurchaseCommissionItemDto> commissions, BigDecimal serviceFee) {
+        return toResponse(p, fileIds, commissions, serviceFee, null);
     }
 
-    private PurchaseResponse toResponse(Purchase p, BillAndConditionReportFileIds fileIds, List<PurchaseCommissionItemDto> commissions, BigDecimal serviceFee) {
-        Dealership d = p.getDealership();
-        User buyer = p.getBuyer();
+    private static PurchaseResponse toResponse(PurchaseRow p, BillAndConditionReportFileIds fileIds, List<PurchaseCommissionItemDto> commissions,
+                                               BigDecimal serviceFee, UUID duplicateOfPurchaseId) {
         return new PurchaseResponse(
-                p.getId(),
-                buyer != null ? buyer.getId() : null,
-                buyer != null ? buyer.getUsername() : null,
-                buyer != null ? buyer.getEmail() : null,
-                d != null ? d.getId() : null,
-                d != null ? d.getName() : null,
-                p.getPurchaseDate(),
-                p.getStatus() != null ? p.getStatus() : PurchaseStatus.CONFIRMED,
-                p.getAuctionPlatform(),
-                p.getVin(),
-                p.getMiles(),
-                p.getPurchasePrice(),
-                p.getVehicleYear(),
-                p.getVehicleMake(),
-                p.getVehicleModel(),
-                p.getVehicleTrimLevel(),
-                p.getTransportQuote(),
-                p.getCreatedAt(),
+                p.id(),
+                p.buyerId(),
+                p.buyerFullName(),
+                p.buyerEmail(),
+                p.dealershipId(),
+                p.dealershipName(),
+                p.purchaseDate(),
+                p.status() != null ? p.status() : PurchaseStatus.CONFIRMED,
+                p.auctionPlatform(),
+                p.vin(),
+                p.miles(),
+                p.purchasePrice(),
+                p.vehicleYear(),
+                p.vehicleMake(),
+                p.vehicleModel(),
+                p.vehicleTrimLevel(),
+                p.transportQuote(),
+                p.createdAt(),
                 fileIds != null ? fileIds.billOfSaleFileId() : null,
                 fileIds != null ? fileIds.conditionReportFileId() : null,
                 commissions != null ? commissions : List.of(),
-                serviceFee != null ? serviceFee : BigDecimal.ZERO
+                serviceFee != null ? serviceFee : BigDecimal.ZERO,
+                duplicateOfPurchaseId
         );
     }
 }
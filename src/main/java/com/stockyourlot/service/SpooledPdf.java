@@ -0,0 +1,89 @@
+package com.stockyourlot.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * An uploaded PDF held either in memory (extraction jobs, which already have the bytes) or in a temp file spooled
+ * from the multipart upload, so the request path never keeps a heap copy of the document. Hashing, PDFBox parsing
+ * and the GCS upload all read from the same source. Closing deletes the temp file.
+ */
+final class SpooledPdf implements AutoCloseable {
+
+    private final byte[] bytes;
+    private final Path file;
+
+    private SpooledPdf(byte[] bytes, Path file) {
+        this.bytes = bytes;
+        this.file = file;
+    }
+
+    static SpooledPdf of(byte[] bytes) {
+        return new SpooledPdf(bytes, null);
+    }
+
+    /**
+     * Copies the upload to a temp file (a move when the container already stored the part on disk).
+     */
+    static SpooledPdf spool(MultipartFile upload) throws IOException {
+        Path temp = Files.createTempFile("upload-", ".pdf");
+        try {
+            upload.transferTo(temp);
+            return new SpooledPdf(null, temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    InputStream openStream() throws IOException {
+        return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+    }
+
+    long size() throws IOException {
+        return bytes != null ? bytes.length : Files.size(file);
+    }
+
+    /**
+     * PDFBox reads a file source through a buffered random-access reader instead of loading it whole, and scratch
+     * buffers for decoded streams go to a temp file rather than the heap.
+     */
+    PDDocument load() throws IOException {
+        return bytes != null
+                ? Loader.loadPDF(bytes, "", null, null, IOUtils.createTempFileOnlyStreamCache())
+                : Loader.loadPDF(file.toFile(), IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    String sha256Hex() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(openStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.stockyourlot.service;
 
+import com.stockyourlot.config.AuthPrincipalCache;
 import com.stockyourlot.dto.AddUserCommissionRequest;
 import com.stockyourlot.dto.DealershipRoleDto;
 import com.stockyourlot.dto.UpdateUserCommissionRequest;
@@ -43,19 +44,22 @@ public class UserService {
     private final UserCommissionRepository userCommissionRepository;
     private final DealershipRepository dealershipRepository;
     private final DealershipUserRepository dealershipUserRepository;
+    private final AuthPrincipalCache authPrincipalCache;
 
     public UserService(UserRepository userRepository,
                        RoleRepository roleRepository,
                        CommissionService commissionService,
                        UserCommissionRepository userCommissionRepository,
                        DealershipRepository dealershipRepository,
-                       DealershipUserRepository dealershipUserRepository) {
+                       DealershipUserRepository dealershipUserRepository,
+                       AuthPrincipalCache authPrincipalCache) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.commissionService = commissionService;
         this.userCommissionRepository = userCommissionRepository;
         this.dealershipRepository = dealershipRepository;
         this.dealershipUserRepository = dealershipUserRepository;
+        this.authPrincipalCache = authPrincipalCache;
     }
 
     /**
@@ -74,6 +78,7 @@ public class UserService {
         Role role = roleRepository.findByName(normalized)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown role: " + roleName));
         user.getRoles().add(role);
+        authPrincipalCache.evict(user.getEmail());
         return userRepository.save(user);
     }
 
@@ -165,6 +170,7 @@ public class UserService {
     public void deleteUser(UUID userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + userId));
+        authPrincipalCache.evict(user.getEmail());
         userRepository.delete(user);
     }
 
@@ -178,6 +184,7 @@ public class UserService {
     public UserWithRolesDto update(UUID id, UpdateUserRequest request) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + id));
+        authPrincipalCache.evict(user.getEmail());
 
         if (request.email() != null && !request.email().trim().isEmpty()) {
             String email = request.email().trim().toLowerCase();
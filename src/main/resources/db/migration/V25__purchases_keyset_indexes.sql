@@ -0,0 +1,4 @@
+-- Keyset pagination on (created_at, id), newest first, for the full list and per buyer / per dealership.
+CREATE INDEX idx_purchases_created_at_id ON purchases (created_at DESC, id DESC);
+CREATE INDEX idx_purchases_buyer_created_at_id ON purchases (buyer_id, created_at DESC, id DESC);
+CREATE INDEX idx_purchases_dealership_created_at_id ON purchases (dealership_id, created_at DESC, id DESC);
@@ -0,0 +1,28 @@
+-- Asynchronous PDF extraction jobs (bill of sale / condition report). A job survives restarts: any pod picks up
+-- QUEUED jobs and RUNNING jobs whose worker stopped reporting (see ExtractionJobService).
+CREATE TABLE extraction_jobs (
+    id               UUID PRIMARY KEY,
+    document_type    VARCHAR(50) NOT NULL,
+    status           VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    upload_token     VARCHAR(36) NULL,
+    file_name        VARCHAR(255) NULL,
+    attempts         INTEGER NOT NULL DEFAULT 0,
+    result_json      TEXT NULL,
+    error_status     INTEGER NULL,
+    error_message    VARCHAR(1000) NULL,
+    created_at       TIMESTAMPTZ NOT NULL,
+    updated_at       TIMESTAMPTZ NOT NULL,
+    started_at       TIMESTAMPTZ NULL,
+    completed_at     TIMESTAMPTZ NULL,
+    CONSTRAINT chk_extraction_jobs_document_type CHECK (document_type IN ('BILL_OF_SALE', 'CONDITION_REPORT')),
+    CONSTRAINT chk_extraction_jobs_status CHECK (status IN ('QUEUED', 'RUNNING', 'SUCCEEDED', 'FAILED'))
+);
+
+CREATE INDEX idx_extraction_jobs_status_created_at ON extraction_jobs (status, created_at);
+
+-- Uploaded PDF for a job, kept apart so status reads never load the document. Deleted when the job finishes.
+CREATE TABLE extraction_job_payloads (
+    job_id   UUID PRIMARY KEY,
+    content  BYTEA NOT NULL,
+    CONSTRAINT fk_extraction_job_payloads_job FOREIGN KEY (job_id) REFERENCES extraction_jobs (id) ON DELETE CASCADE
+);
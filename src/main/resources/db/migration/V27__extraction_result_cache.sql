@@ -0,0 +1,16 @@
+-- Persistent tier of the extraction result cache: raw LLM output keyed by document type, model, prompt version and
+-- the SHA-256 of the PDF bytes, so a re-uploaded document never pays for a second completion (see ExtractionResultCache).
+CREATE TABLE extraction_results (
+    cache_key        VARCHAR(255) PRIMARY KEY,
+    document_type    VARCHAR(50) NOT NULL,
+    model            VARCHAR(100) NOT NULL,
+    prompt_version   VARCHAR(50) NOT NULL,
+    content_sha256   VARCHAR(64) NOT NULL,
+    result_json      TEXT NOT NULL,
+    total_tokens     INTEGER NOT NULL DEFAULT 0,
+    hit_count        BIGINT NOT NULL DEFAULT 0,
+    created_at       TIMESTAMPTZ NOT NULL,
+    last_hit_at      TIMESTAMPTZ NULL
+);
+
+CREATE INDEX idx_extraction_results_created_at ON extraction_results (created_at);
@@ -0,0 +1,3 @@
+-- GCS generation of the stored object, used as the download ETag so conditional requests are answered from the
+-- database alone. NULL for rows written before this column existed (ETag falls back to id + updated_at).
+ALTER TABLE file_metadata ADD COLUMN object_generation BIGINT NULL;
@@ -0,0 +1,13 @@
+-- Persisted sales counters for commission/premium assignments: purchases by the user (or at the dealership) dated on
+-- or after the assignment's start_date. Incremented per purchase and recomputed only when a purchase's date or
+-- dealership changes, so expiry by number_of_sales is a column comparison instead of a count over purchase history.
+ALTER TABLE user_commission ADD COLUMN sales_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE dealer_premium ADD COLUMN sales_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE user_commission uc
+SET sales_count = (SELECT COUNT(*) FROM purchases p WHERE p.buyer_id = uc.user_id AND p.purchase_date >= uc.start_date)
+WHERE uc.status = 'ACTIVE';
+
+UPDATE dealer_premium dp
+SET sales_count = (SELECT COUNT(*) FROM purchases p WHERE p.dealership_id = dp.dealership_id AND p.purchase_date >= dp.start_date)
+WHERE dp.status = 'ACTIVE';
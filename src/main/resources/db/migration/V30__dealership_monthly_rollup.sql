@@ -0,0 +1,36 @@
+-- Per dealership and calendar month: purchase count, total purchase price, service fees (purchase_premium, by its
+-- dealership) and commissions (purchase_commission, by the purchase's dealership). Maintained incrementally when
+-- purchases, premiums and commissions are recorded and rebuilt periodically (see DealershipRollupService), so the
+-- dealership list and premium summary no longer aggregate over purchase history.
+CREATE TABLE dealership_monthly_rollup (
+    id                   UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    dealership_id        UUID NOT NULL REFERENCES dealerships (id) ON DELETE CASCADE,
+    month_start          DATE NOT NULL,
+    purchase_count       BIGINT NOT NULL DEFAULT 0,
+    total_price          DECIMAL(16, 2) NOT NULL DEFAULT 0,
+    total_service_fees   DECIMAL(16, 2) NOT NULL DEFAULT 0,
+    total_commissions    DECIMAL(16, 2) NOT NULL DEFAULT 0,
+    updated_at           TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT uq_dealership_monthly_rollup UNIQUE (dealership_id, month_start)
+);
+
+-- Single-cell refreshes filter purchases by dealership and date range.
+CREATE INDEX idx_purchases_dealership_id_purchase_date ON purchases (dealership_id, purchase_date);
+
+INSERT INTO dealership_monthly_rollup (dealership_id, month_start, purchase_count, total_price, total_service_fees, total_commissions)
+SELECT t.dealership_id, t.month_start, SUM(t.purchase_count), SUM(t.total_price), SUM(t.total_service_fees), SUM(t.total_commissions)
+FROM (
+    SELECT p.dealership_id, CAST(date_trunc('month', p.purchase_date) AS DATE) AS month_start,
+           1 AS purchase_count, COALESCE(p.purchase_price, 0) AS total_price, 0 AS total_service_fees, 0 AS total_commissions
+    FROM purchases p
+    WHERE p.dealership_id IS NOT NULL AND p.purchase_date IS NOT NULL
+    UNION ALL
+    SELECT pp.dealership_id, CAST(date_trunc('month', p.purchase_date) AS DATE), 0, 0, pp.amount, 0
+    FROM purchase_premium pp JOIN purchases p ON p.id = pp.purchase_id
+    WHERE pp.dealership_id IS NOT NULL AND p.purchase_date IS NOT NULL
+    UNION ALL
+    SELECT p.dealership_id, CAST(date_trunc('month', p.purchase_date) AS DATE), 0, 0, 0, pc.amount
+    FROM purchase_commission pc JOIN purchases p ON p.id = pc.purchase_id
+    WHERE p.dealership_id IS NOT NULL AND p.purchase_date IS NOT NULL
+) t
+GROUP BY t.dealership_id, t.month_start;
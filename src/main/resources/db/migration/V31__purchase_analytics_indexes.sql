@@ -0,0 +1,11 @@
+-- Covering indexes for GET /api/analytics/purchases: a purchase-date range scan reads every grouped/summed column
+-- and the id the commission/premium lookups join on from the index, and per-purchase commission/premium sums are
+-- index-only lookups. The new purchase_id indexes replace the plain ones from V16/V21.
+CREATE INDEX idx_purchases_purchase_date_analytics ON purchases (purchase_date)
+    INCLUDE (id, dealership_id, buyer_id, auction_platform, vehicle_make, purchase_price, transport_quote);
+
+CREATE INDEX idx_purchase_commission_purchase_id_amount ON purchase_commission (purchase_id) INCLUDE (amount);
+DROP INDEX IF EXISTS idx_purchase_commission_purchase_id;
+
+CREATE INDEX idx_purchase_premium_purchase_id_amount ON purchase_premium (purchase_id) INCLUDE (amount);
+DROP INDEX IF EXISTS idx_purchase_premium_purchase_id;
@@ -0,0 +1,5 @@
+-- VIN lookups (GET /api/purchases/vin-search and the duplicate check on create) compare UPPER(vin): equality and
+-- prefix LIKE use the first index, suffix LIKE (e.g. last 6) runs as a prefix match on the reversed VIN.
+-- text_pattern_ops keeps LIKE 'ABC%' indexable regardless of the database collation.
+CREATE INDEX idx_purchases_vin_upper ON purchases (UPPER(vin) text_pattern_ops);
+CREATE INDEX idx_purchases_vin_reversed ON purchases (reverse(UPPER(vin)) text_pattern_ops);
@@ -0,0 +1,11 @@
+-- Full-text vehicle search (GET /api/purchases/search): a generated tsvector over make/model (weight A), year/trim
+-- (B), auction platform (C) and VIN (D), kept current by Postgres on every insert/update, with a GIN index.
+-- Not mapped on the Purchase entity; only the native search query reads it.
+ALTER TABLE purchases ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(vehicle_make, '') || ' ' || coalesce(vehicle_model, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(vehicle_year, '') || ' ' || coalesce(vehicle_trim_level, '')), 'B') ||
+    setweight(to_tsvector('english', coalesce(auction_platform, '')), 'C') ||
+    setweight(to_tsvector('english', coalesce(vin, '')), 'D')
+) STORED;
+
+CREATE INDEX idx_purchases_search_vector ON purchases USING GIN (search_vector);
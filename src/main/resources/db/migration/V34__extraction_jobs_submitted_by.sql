@@ -0,0 +1,5 @@
+-- Extraction jobs are only readable by the user who submitted them (results include the pending upload token).
+-- Jobs from before this column have no owner and are no longer readable; they are purged after the retention period.
+ALTER TABLE extraction_jobs ADD COLUMN submitted_by UUID NULL;
+ALTER TABLE extraction_jobs ADD CONSTRAINT fk_extraction_jobs_submitted_by
+    FOREIGN KEY (submitted_by) REFERENCES users (id) ON DELETE CASCADE;
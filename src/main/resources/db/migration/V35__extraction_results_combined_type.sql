@@ -0,0 +1,7 @@
+-- Combined bill-of-sale + condition-report completions were cached as BILL_OF_SALE, told apart only by their
+-- combined-* prompt version. Give them their own document type, and the matching cache_key prefix.
+UPDATE extraction_results
+SET document_type = 'COMBINED',
+    cache_key = 'COMBINED' || SUBSTRING(cache_key FROM LENGTH('BILL_OF_SALE') + 1)
+WHERE document_type = 'BILL_OF_SALE'
+  AND prompt_version LIKE 'combined-%';
@@ -0,0 +1,82 @@
+package com.stockyourlot.config;
+
+import com.stockyourlot.entity.Dealership;
+import com.stockyourlot.entity.Purchase;
+import com.stockyourlot.entity.User;
+import com.stockyourlot.repository.DealershipRepository;
+import com.stockyourlot.repository.PurchaseRepository;
+import com.stockyourlot.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The statement budget end to end: SqlStatementCountFilter counts, SqlStatementBudgetAdvice reports and enforces.
+ * The budget is lowered to 3 so a single listed purchase (page query plus files, service fees and commission
+ * lines) goes over it.
+ */
+@SpringBootTest(properties = {
+        "app.sql-stats.header-enabled=true",
+        "app.sql-stats.fail-over-budget=true",
+        "app.sql-stats.max-statements-per-request=3"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SqlStatementBudgetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private DealershipRepository dealershipRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        purchaseRepository.deleteAll();
+        dealershipRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void purchaseListReportsStatementCount() throws Exception {
+        // Empty page: only the page query runs
+        mockMvc.perform(get("/api/purchases").with(user("buyer@example.com")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlStatementBudgetAdvice.HEADER, "1"));
+    }
+
+    @Test
+    void purchaseListOverBudgetFails() {
+        User buyer = userRepository.save(new User("buyer@example.com", "hash"));
+        Dealership dealership = dealershipRepository.save(new Dealership("Bench Motors"));
+        Purchase purchase = new Purchase();
+        purchase.setBuyer(buyer);
+        purchase.setDealership(dealership);
+        purchase.setPurchaseDate(LocalDate.of(2024, 3, 14));
+        purchase.setAuctionPlatform("Manheim");
+        purchase.setVin("1HGCM82633A004352");
+        purchase.setPurchasePrice(new BigDecimal("4850.00"));
+        purchaseRepository.save(purchase);
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/api/purchases").with(user("buyer@example.com"))))
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .rootCause()
+                .hasMessageContaining("GET /api/purchases ran 4 SQL statements, over the budget of 3");
+    }
+}
@@ -0,0 +1,135 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.dto.BillOfSaleExtractionResponse;
+import com.stockyourlot.dto.ConditionReportExtractionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rule-based extraction: only unambiguous documents with the right title are accepted, anything else goes to OpenAI.
+ */
+class LocalFieldExtractorTest {
+
+    private static final String VIN = "1HGCM82633A004352";
+
+    private static final String MANHEIM_BILL_OF_SALE = """
+            MANHEIM PENNSYLVANIA
+            BILL OF SALE
+            Sale Date: 3/14/2024
+            VIN: 1HGCM82633A004352
+            2003 Honda Accord EX
+            Odometer: 141,250
+            Exterior Color: Silver
+            Sale Price: $4,850.00
+            Buyer: Bench Motors LLC
+            """;
+
+    private static final String ADESA_CONDITION_REPORT = """
+            ADESA Boston
+            CONDITION REPORT
+            VIN: 1HGCM82633A004352
+            Year: 2003 Make: HONDA Model: Accord Trim: LX
+            Odometer: 141,250   Color: BLUE
+            Grade: 3.1
+            """;
+
+    @Test
+    void isValidVinChecksCheckDigitLengthAndCharacters() {
+        assertThat(LocalFieldExtractor.isValidVin(VIN)).isTrue();
+        assertThat(LocalFieldExtractor.isValidVin("1M8GDM9AXKP042788")).isTrue(); // check digit X
+        assertThat(LocalFieldExtractor.isValidVin("1HGCM82634A004352")).isFalse(); // wrong check digit
+        assertThat(LocalFieldExtractor.isValidVin("1HGCM82633A00435")).isFalse();
+        assertThat(LocalFieldExtractor.isValidVin("1HGCM82633A0043521")).isFalse();
+        assertThat(LocalFieldExtractor.isValidVin("1HGCM82633AO04352")).isFalse(); // letter O
+        assertThat(LocalFieldExtractor.isValidVin("IHGCM82633A004352")).isFalse(); // letter I
+        assertThat(LocalFieldExtractor.isValidVin("1HGCM82633AQ04352")).isFalse(); // letter Q
+        assertThat(LocalFieldExtractor.isValidVin(null)).isFalse();
+    }
+
+    @Test
+    void extractsManheimBillOfSale() {
+        BillOfSaleExtractionResponse response = LocalFieldExtractor.billOfSale(MANHEIM_BILL_OF_SALE).orElseThrow();
+
+        assertThat(response.vin()).isEqualTo(VIN);
+        assertThat(response.make()).isEqualTo("Honda");
+        assertThat(response.model()).isEqualTo("Accord");
+        assertThat(response.trim()).isEqualTo("EX");
+        assertThat(response.vehicleYear()).isEqualTo(2003);
+        assertThat(response.miles()).isEqualTo(141_250);
+        assertThat(response.color()).isEqualTo("Silver");
+        assertThat(response.purchasePrice()).isEqualByComparingTo(new BigDecimal("4850.00"));
+        assertThat(response.auction()).isEqualTo("Manheim");
+        assertThat(response.saleDate()).isEqualTo("2024-03-14");
+        assertThat(response.isValidBillOfSale()).isTrue();
+        assertThat(response.source()).isEqualTo(LocalFieldExtractor.SOURCE_RULES);
+    }
+
+    @Test
+    void extractsLabelledConditionReport() {
+        ConditionReportExtractionResponse response = LocalFieldExtractor.conditionReport(ADESA_CONDITION_REPORT).orElseThrow();
+
+        assertThat(response.vin()).isEqualTo(VIN);
+        assertThat(response.make()).isEqualTo("Honda");
+        assertThat(response.model()).isEqualTo("Accord");
+        assertThat(response.trim()).isEqualTo("LX");
+        assertThat(response.vehicleYear()).isEqualTo(2003);
+        assertThat(response.miles()).isEqualTo(141_250);
+        assertThat(response.color()).isEqualTo("Blue");
+        assertThat(response.auction()).isEqualTo("ADESA");
+        assertThat(response.isValidConditionReport()).isTrue();
+        assertThat(response.source()).isEqualTo(LocalFieldExtractor.SOURCE_RULES);
+    }
+
+    @Test
+    void declinesDocumentPostedAsTheOtherType() {
+        assertThat(LocalFieldExtractor.conditionReport(MANHEIM_BILL_OF_SALE)).isEmpty();
+        assertThat(LocalFieldExtractor.billOfSale(ADESA_CONDITION_REPORT)).isEmpty();
+    }
+
+    @Test
+    void declinesTextCarryingBothTitles() {
+        String both = MANHEIM_BILL_OF_SALE + "See attached condition report\n";
+
+        assertThat(LocalFieldExtractor.billOfSale(both)).isEmpty();
+        assertThat(LocalFieldExtractor.conditionReport(both)).isEmpty();
+    }
+
+    @Test
+    void declinesYearThatConflictsWithVin() {
+        // Position 10 of the VIN is '3': 2003 (or 2033), never 2004
+        String text = MANHEIM_BILL_OF_SALE.replace("2003 Honda", "2004 Honda");
+
+        assertThat(LocalFieldExtractor.billOfSale(text)).isEmpty();
+    }
+
+    @Test
+    void declinesTwoDistinctValidVins() {
+        String text = MANHEIM_BILL_OF_SALE + "Trade-in VIN: 1M8GDM9AXKP042788\n";
+
+        assertThat(LocalFieldExtractor.billOfSale(text)).isEmpty();
+    }
+
+    @Test
+    void ignoresVinThatFailsCheckDigit() {
+        String text = MANHEIM_BILL_OF_SALE.replace(VIN, "1HGCM82634A004352");
+
+        assertThat(LocalFieldExtractor.billOfSale(text)).isEmpty();
+    }
+
+    @Test
+    void declinesMissingTrim() {
+        String text = MANHEIM_BILL_OF_SALE.replace("2003 Honda Accord EX", "2003 Honda Accord");
+
+        assertThat(LocalFieldExtractor.billOfSale(text)).isEmpty();
+    }
+
+    @Test
+    void declinesBillOfSaleWithoutPrice() {
+        String text = MANHEIM_BILL_OF_SALE.replace("Sale Price: $4,850.00\n", "");
+
+        assertThat(LocalFieldExtractor.billOfSale(text)).isEmpty();
+    }
+}
@@ -0,0 +1,175 @@
+package com.stockyourlot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Drives OpenAiClient against {@link OpenAiStubServer}: retries, quota errors, the circuit breaker and hedging.
+ */
+class OpenAiClientTest {
+
+    private OpenAiStubServer stub;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        stub = new OpenAiStubServer().defaultCompletion("{\"vin\":\"1HGCM82633A004352\"}");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    /** maxAttempts 3, 10-50 ms backoff, no hedging; circuit threshold 5, open 30 s. */
+    private OpenAiClient client() {
+        return client(3, 0, 5, 30_000);
+    }
+
+    private OpenAiClient client(int maxAttempts, long hedgeAfterMs, int circuitFailureThreshold, long circuitOpenMs) {
+        return new OpenAiClient(meterRegistry, "test-key", "stub-model", stub.baseUrl(),
+                2_000, 5_000, 4, 1_000, maxAttempts, 10, 50, 5_000, hedgeAfterMs,
+                circuitFailureThreshold, circuitOpenMs);
+    }
+
+    private double retries() {
+        return meterRegistry.counter("openai.retries").count();
+    }
+
+    @Test
+    void retriesAfter429HonouringRetryAfter() {
+        stub.enqueue(OpenAiStubServer.Reply.error(429, "Rate limit reached", Map.of("Retry-After", "1")));
+        OpenAiClient client = client();
+
+        long start = System.nanoTime();
+        OpenAiClient.ChatCompletion completion = client.complete("test", "system", "user");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(completion.content()).contains("1HGCM82633A004352");
+        assertThat(completion.totalTokens()).isEqualTo(120);
+        assertThat(stub.requestCount()).isEqualTo(2);
+        assertThat(retries()).isEqualTo(1);
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(900);
+    }
+
+    @Test
+    void retries5xxThenSucceeds() {
+        stub.enqueue(OpenAiStubServer.Reply.error(503, "Service unavailable", Map.of()))
+                .enqueue(OpenAiStubServer.Reply.error(500, "Internal error", Map.of()));
+        OpenAiClient client = client();
+
+        OpenAiClient.ChatCompletion completion = client.complete("test", "system", "user");
+
+        assertThat(completion.content()).contains("1HGCM82633A004352");
+        assertThat(stub.requestCount()).isEqualTo(3);
+        assertThat(retries()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpWhenRetryAfterExceedsLimit() {
+        stub.enqueue(OpenAiStubServer.Reply.error(429, "Rate limit reached", Map.of("Retry-After", "120")));
+        OpenAiClient client = client();
+
+        assertThatThrownBy(() -> client.complete("test", "system", "user"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY));
+        assertThat(stub.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void insufficientQuotaIsNotRetried() {
+        stub.enqueue(new OpenAiStubServer.Reply(429,
+                "{\"error\":{\"message\":\"You exceeded your current quota\",\"code\":\"insufficient_quota\"}}",
+                Map.of(), 0));
+        OpenAiClient client = client();
+
+        assertThatThrownBy(() -> client.complete("test", "system", "user"))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+                    assertThat(e.getReason()).contains("quota");
+                });
+        assertThat(stub.requestCount()).isEqualTo(1);
+        assertThat(retries()).isZero();
+    }
+
+    @Test
+    void circuitOpensAfterFailuresAndRecoversThroughHalfOpenTrial() throws Exception {
+        stub.enqueue(OpenAiStubServer.Reply.error(503, "down", Map.of()))
+                .enqueue(OpenAiStubServer.Reply.error(503, "down", Map.of()));
+        OpenAiClient client = client(1, 0, 2, 300);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.complete("test", "system", "user"))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY));
+        }
+        assertThat(meterRegistry.get("openai.circuit.open").gauge().value()).isEqualTo(1);
+
+        // Open: fails fast without a request
+        assertThatThrownBy(() -> client.complete("test", "system", "user"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(stub.requestCount()).isEqualTo(2);
+
+        Thread.sleep(400);
+
+        // Half-open: the trial call succeeds and closes the circuit
+        assertThat(client.complete("test", "system", "user").content()).contains("1HGCM82633A004352");
+        assertThat(meterRegistry.get("openai.circuit.open").gauge().value()).isZero();
+        assertThat(client.complete("test", "system", "user").content()).contains("1HGCM82633A004352");
+        assertThat(stub.requestCount()).isEqualTo(4);
+    }
+
+    @Test
+    void failedHalfOpenTrialReopensCircuit() throws Exception {
+        stub.enqueue(OpenAiStubServer.Reply.error(503, "down", Map.of()))
+                .enqueue(OpenAiStubServer.Reply.error(503, "still down", Map.of()));
+        OpenAiClient client = client(1, 0, 1, 300);
+
+        assertThatThrownBy(() -> client.complete("test", "system", "user")).isInstanceOf(ResponseStatusException.class);
+        Thread.sleep(400);
+        assertThatThrownBy(() -> client.complete("test", "system", "user"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY));
+        assertThat(meterRegistry.get("openai.circuit.open").gauge().value()).isEqualTo(1);
+        assertThat(stub.requestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void hedgeWonBySecondRequest() {
+        stub.enqueue(OpenAiStubServer.Reply.completion("{\"source\":\"primary\"}").delayed(3_000))
+                .enqueue(OpenAiStubServer.Reply.completion("{\"source\":\"hedge\"}"));
+        OpenAiClient client = client(1, 100, 5, 30_000);
+
+        long start = System.nanoTime();
+        OpenAiClient.ChatCompletion completion = client.complete("test", "system", "user");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(completion.content()).isEqualTo("{\"source\":\"hedge\"}");
+        assertThat(meterRegistry.counter("openai.hedges").count()).isEqualTo(1);
+        assertThat(stub.requestCount()).isEqualTo(2);
+        assertThat(elapsedMs).isLessThan(3_000);
+    }
+
+    @Test
+    void notConfiguredFailsWithoutRequest() {
+        OpenAiClient client = new OpenAiClient(meterRegistry, "", "stub-model", stub.baseUrl(),
+                2_000, 5_000, 4, 1_000, 3, 10, 50, 5_000, 0, 5, 30_000);
+
+        assertThat(client.isConfigured()).isFalse();
+        assertThatThrownBy(() -> client.complete("test", "system", "user"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(stub.requestCount()).isZero();
+    }
+}
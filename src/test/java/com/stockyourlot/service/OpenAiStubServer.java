@@ -0,0 +1,119 @@
+package com.stockyourlot.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the OpenAI chat completions endpoint, for tests and offline runs. Point the app at it with
+ * openai.api.base-url={@link #baseUrl()} (and any non-blank openai.api.key). Scripted responses are served in order
+ * (e.g. a 429 with Retry-After, a 503, a slow reply) and after that every call gets the default completion.
+ * <p>
+ * Standalone: run {@link #main} and set OPENAI_API_BASE_URL to the printed URL.
+ */
+public final class OpenAiStubServer implements AutoCloseable {
+
+    /** One scripted reply. */
+    public record Reply(int status, String body, Map<String, String> headers, long delayMs) {
+
+        public static Reply completion(String content) {
+            return new Reply(200, completionBody(content), Map.of(), 0);
+        }
+
+        public static Reply error(int status, String message, Map<String, String> headers) {
+            return new Reply(status, "{\"error\":{\"message\":\"" + escape(message) + "\",\"code\":null}}", headers, 0);
+        }
+
+        public Reply delayed(long delayMs) {
+            return new Reply(status, body, headers, delayMs);
+        }
+    }
+
+    private final HttpServer server;
+    private final Queue<Reply> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Reply defaultReply = Reply.completion("{}");
+
+    public OpenAiStubServer() throws IOException {
+        this(0);
+    }
+
+    public OpenAiStubServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public OpenAiStubServer enqueue(Reply reply) {
+        script.add(reply);
+        return this;
+    }
+
+    /** Content (the JSON the model would return) of every unscripted completion. */
+    public OpenAiStubServer defaultCompletion(String content) {
+        defaultReply = Reply.completion(content);
+        return this;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            Reply reply = script.poll();
+            if (reply == null) reply = defaultReply;
+            if (reply.delayMs() > 0) {
+                Thread.sleep(reply.delayMs());
+            }
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            reply.headers().forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static String completionBody(String content) {
+        return """
+                {"id":"chatcmpl-stub","object":"chat.completion","model":"stub",
+                 "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}],
+                 "usage":{"prompt_tokens":100,"completion_tokens":20,"total_tokens":120}}
+                """.formatted(escape(content));
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static void main(String[] args) throws Exception {
+        OpenAiStubServer stub = new OpenAiStubServer(args.length > 0 ? Integer.parseInt(args[0]) : 8089);
+        System.out.println("OpenAI stub listening; set OPENAI_API_BASE_URL=" + stub.baseUrl());
+        Thread.currentThread().join();
+    }
+}
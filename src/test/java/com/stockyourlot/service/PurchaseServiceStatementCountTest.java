@@ -0,0 +1,143 @@
+package com.stockyourlot.service;
+
+import com.stockyourlot.entity.Dealership;
+import com.stockyourlot.entity.FileMetadata;
+import com.stockyourlot.entity.FileStatus;
+import com.stockyourlot.entity.FileType;
+import com.stockyourlot.entity.Purchase;
+import com.stockyourlot.entity.PurchaseCommission;
+import com.stockyourlot.entity.PurchasePremium;
+import com.stockyourlot.entity.User;
+import com.stockyourlot.repository.DealershipRepository;
+import com.stockyourlot.repository.FileMetadataRepository;
+import com.stockyourlot.repository.PurchaseCommissionRepository;
+import com.stockyourlot.repository.PurchasePremiumRepository;
+import com.stockyourlot.repository.PurchaseRepository;
+import com.stockyourlot.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The purchase list endpoints run a fixed number of statements per page, whatever the page size: seeded purchases
+ * with files, commission lines and premiums are listed at N=1 and N=50 and the prepared statements compared.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class PurchaseServiceStatementCountTest {
+
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private PurchaseCommissionRepository purchaseCommissionRepository;
+    @Autowired
+    private PurchasePremiumRepository purchasePremiumRepository;
+    @Autowired
+    private FileMetadataRepository fileMetadataRepository;
+    @Autowired
+    private DealershipRepository dealershipRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cleanUp();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        fileMetadataRepository.deleteAllInBatch();
+        purchaseCommissionRepository.deleteAllInBatch();
+        purchasePremiumRepository.deleteAllInBatch();
+        purchaseRepository.deleteAllInBatch();
+        dealershipRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    private record Seeded(UUID buyerId, UUID dealershipId) {}
+
+    private Seeded seed(int purchases) {
+        User buyer = userRepository.save(new User("buyer-" + purchases + "@example.com", "hash"));
+        User salesperson = userRepository.save(new User("sales-" + purchases + "@example.com", "hash"));
+        Dealership dealership = dealershipRepository.save(new Dealership("Bench Motors " + purchases));
+        for (int i = 0; i < purchases; i++) {
+            Purchase purchase = new Purchase();
+            purchase.setBuyer(buyer);
+            purchase.setDealership(dealership);
+            purchase.setPurchaseDate(LocalDate.of(2024, 3, 14).minusDays(i));
+            purchase.setAuctionPlatform("Manheim");
+            purchase.setVin("1HGCM82633A%06d".formatted(i));
+            purchase.setPurchasePrice(new BigDecimal("4850.00"));
+            purchase = purchaseRepository.save(purchase);
+
+            fileMetadataRepository.save(file(purchase, FileType.BILL_OF_SALE));
+            fileMetadataRepository.save(file(purchase, FileType.CONDITION_REPORT));
+            purchaseCommissionRepository.save(new PurchaseCommission(purchase, buyer, null, new BigDecimal("150.00")));
+            purchaseCommissionRepository.save(new PurchaseCommission(purchase, salesperson, null, new BigDecimal("75.00")));
+            purchasePremiumRepository.save(new PurchasePremium(purchase, dealership, null, new BigDecimal("200.00")));
+        }
+        return new Seeded(buyer.getId(), dealership.getId());
+    }
+
+    private static FileMetadata file(Purchase purchase, FileType type) {
+        FileMetadata meta = new FileMetadata();
+        meta.setPurchase(purchase);
+        meta.setStatus(FileStatus.ACTIVE);
+        meta.setFileName(type.name().toLowerCase(Locale.ROOT) + ".pdf");
+        meta.setBucket("test-bucket");
+        meta.setObjectPath("purchases/" + purchase.getId() + "/" + type.name().toLowerCase(Locale.ROOT) + ".pdf");
+        meta.setContentType("application/pdf");
+        meta.setFileType(type);
+        meta.setSizeBytes(1024L);
+        return meta;
+    }
+
+    private long statementsFor(Runnable call) {
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private record Counts(long all, long byBuyer, long byDealership) {}
+
+    private Counts listStatements(int purchases) {
+        Seeded seeded = seed(purchases);
+        Counts counts = new Counts(
+                statementsFor(() -> assertThat(purchaseService.getAll(null, null, null, 200).items()).hasSize(purchases)),
+                statementsFor(() -> assertThat(purchaseService.getByBuyerId(seeded.buyerId(), null, 200).items()).hasSize(purchases)),
+                statementsFor(() -> assertThat(purchaseService.getByDealershipId(seeded.dealershipId(), null, 200).items()).hasSize(purchases)));
+        cleanUp();
+        return counts;
+    }
+
+    @Test
+    void listStatementCountDoesNotGrowWithPageSize() {
+        Counts one = listStatements(1);
+        Counts fifty = listStatements(50);
+
+        assertThat(one.all()).isPositive();
+        assertThat(fifty.all()).isEqualTo(one.all());
+        assertThat(fifty.byBuyer()).isEqualTo(one.byBuyer());
+        assertThat(fifty.byDealership()).isEqualTo(one.byDealership());
+    }
+}